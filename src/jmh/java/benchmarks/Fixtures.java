@@ -0,0 +1,145 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Synthetic cppcheck and flawfinder reports for the parsing benchmarks.
+ *
+ * The 1k reports are checked in under src/jmh/resources/fixtures. Larger reports are written by the same code on
+ * first use to target/jmh-fixtures (a 1M finding cppcheck report is a few hundred MB, too big for the repository),
+ * so every size has the same shape and mix of ids. Run main to regenerate the checked-in reports.
+ */
+public class Fixtures {
+
+    public static final int CHECKED_IN_FINDINGS = 1000;
+
+    private static final Path CHECKED_IN = Paths.get("src/jmh/resources/fixtures");
+    private static final Path GENERATED = Paths.get("target/jmh-fixtures");
+
+    // ids described by the blank model, plus one that is not and ends up under "unknown"
+    private static final String[][] CPPCHECK_ERRORS = {
+        {"uninitvar", "error", "Uninitialized variable: len", "457"},
+        {"unreadVariable", "style", "Variable &apos;ret&apos; is assigned a value that is never used.", "563"},
+        {"nullPointer", "error", "Null pointer dereference: ptr", "476"},
+        {"memleak", "error", "Memory leak: buf", "401"},
+        {"arrayIndexOutOfBounds", "error", "Array &apos;a[10]&apos; accessed at index 10, which is out of bounds.", "788"},
+        {"notAKnownCppcheckId", "warning", "Not described by the quality model.", "0"},
+    };
+
+    private static final String[][] FLAWFINDER_RULES = {
+        {"FF1013", "char", "buffer", "CWE-119!/CWE-120", "\tchar tn_buf[48];"},
+        {"FF1004", "memcpy", "buffer", "CWE-120", "\tmemcpy(dst, src, len);"},
+        {"FF1031", "strlen", "buffer", "CWE-126", "\tlen = strlen(name);"},
+        {"FF1048", "open", "misc", "CWE-362", "\tfd = open(path, O_RDONLY);"},
+    };
+
+    public static void main(String[] args) throws IOException {
+        writeCppcheck(CHECKED_IN.resolve(cppcheckName(CHECKED_IN_FINDINGS)), CHECKED_IN_FINDINGS);
+        writeFlawfinder(CHECKED_IN.resolve(flawfinderName(CHECKED_IN_FINDINGS)), CHECKED_IN_FINDINGS);
+    }
+
+    /**
+     * @return a cppcheck xml report with the given number of &lt;error&gt; elements
+     */
+    public static Path cppcheck(int findings) throws IOException {
+        if (findings == CHECKED_IN_FINDINGS) {
+            return CHECKED_IN.resolve(cppcheckName(findings));
+        }
+        Path report = GENERATED.resolve(cppcheckName(findings));
+        if (!Files.isRegularFile(report)) {
+            writeCppcheck(report, findings);
+        }
+        return report;
+    }
+
+    /**
+     * @return a flawfinder csv report with the given number of rows
+     */
+    public static Path flawfinder(int findings) throws IOException {
+        if (findings == CHECKED_IN_FINDINGS) {
+            return CHECKED_IN.resolve(flawfinderName(findings));
+        }
+        Path report = GENERATED.resolve(flawfinderName(findings));
+        if (!Files.isRegularFile(report)) {
+            writeFlawfinder(report, findings);
+        }
+        return report;
+    }
+
+    private static String cppcheckName(int findings) {
+        return "synthetic" + findings + "--cppcheckOutput.xml";
+    }
+
+    private static String flawfinderName(int findings) {
+        return "synthetic" + findings + "--flawfinderOutput.csv";
+    }
+
+    private static void writeCppcheck(Path report, int findings) throws IOException {
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            writer.write("<results version=\"2\">\n");
+            writer.write("    <cppcheck version=\"2.4.1\"/>\n");
+            writer.write("    <errors>\n");
+            for (int i = 0; i < findings; i++) {
+                String[] error = CPPCHECK_ERRORS[i % CPPCHECK_ERRORS.length];
+                String file = "src/synthetic/file" + (i / 100) + ".c";
+                int line = i % 100 * 10 + 1;
+                writer.write("        <error id=\"" + error[0] + "\" severity=\"" + error[1] + "\" msg=\"" + error[2]
+                    + "\" verbose=\"" + error[2] + "\" cwe=\"" + error[3] + "\" file0=\"" + file + "\">\n");
+                writer.write("            <location file=\"" + file + "\" line=\"" + line + "\" column=\"5\"/>\n");
+                writer.write("        </error>\n");
+            }
+            writer.write("    </errors>\n");
+            writer.write("</results>\n");
+        }
+    }
+
+    private static void writeFlawfinder(Path report, int findings) throws IOException {
+        Files.createDirectories(report.toAbsolutePath().getParent());
+        try (BufferedWriter writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8)) {
+            writer.write("File,Line,Column,DefaultLevel,Level,Category,Name,Warning,Suggestion,Note,CWEs,Context,"
+                + "Fingerprint,ToolVersion,RuleId,HelpUri\n");
+            for (int i = 0; i < findings; i++) {
+                String[] rule = FLAWFINDER_RULES[i % FLAWFINDER_RULES.length];
+                String file = "src/synthetic/file" + (i / 100) + ".c";
+                int line = i % 100 * 10 + 1;
+                int level = i % 5 + 1;
+                // flawfinder separates rows with an empty line
+                writer.write("\n");
+                writer.write(file + "," + line + ",2," + level + "," + level + "," + rule[2] + "," + rule[1]
+                    + ",\"Synthetic warning (" + rule[3] + ").\",\"Synthetic suggestion.\",," + rule[3]
+                    + ",\"" + rule[4] + "\"," + String.format("%064x", i) + ",2.0.19," + rule[0]
+                    + ",https://cwe.mitre.org/\n");
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import pique.model.Diagnostic;
+import tool.CPPCheckToolWrapper;
+import tool.FlawfinderToolWrapper;
+import utilities.HelperFunctions;
+import utilities.PiqueProperties;
+
+/**
+ * Throughput of the tool output parsers on reports of 1k, 100k and 1M findings.
+ *
+ * Run with mvn -P jmh test-compile exec:exec, which also enables the gc profiler so the allocation rate
+ * (gc.alloc.rate.norm, bytes per parsed report) is reported next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ParseAnalysisBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int findings;
+
+    private CPPCheckToolWrapper cppcheck;
+    private FlawfinderToolWrapper flawfinder;
+    private Path cppcheckReport;
+    private Path flawfinderReport;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        cppcheck = new CPPCheckToolWrapper(Paths.get(PiqueProperties.getPropertiesDefault().getProperty("tool.cppcheck.filepath")));
+        flawfinder = new FlawfinderToolWrapper(Paths.get(PiqueProperties.getPropertiesDefault().getProperty("tool.flawfinder.filepath")));
+        cppcheckReport = Fixtures.cppcheck(findings);
+        flawfinderReport = Fixtures.flawfinder(findings);
+    }
+
+    @Benchmark
+    public Map<String, Diagnostic> cppcheckParseAnalysis() {
+        return cppcheck.parseAnalysis(cppcheckReport);
+    }
+
+    @Benchmark
+    public Map<String, Diagnostic> flawfinderParseAnalysis() {
+        return flawfinder.parseAnalysis(flawfinderReport);
+    }
+
+    @Benchmark
+    public String readFileContent() throws IOException {
+        return HelperFunctions.readFileContent(cppcheckReport);
+    }
+}
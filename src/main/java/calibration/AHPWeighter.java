@@ -0,0 +1,349 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package calibration;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pique.calibration.IWeighter;
+import pique.calibration.WeightResult;
+import pique.model.ModelNode;
+import pique.model.QualityModel;
+import pique.utility.BigDecimalWithContext;
+import utilities.HelperFunctions;
+import utilities.PiqueProperties;
+
+/**
+ * Weights the children of each node by the analytic hierarchy process, from the pairwise comparison matrices in
+ * the comparisons directory. The file name of a matrix does not matter: its top left cell is the name of the
+ * weighted node, the first row and column name the node's children and cell (i, j) says how much more
+ * important child i is than child j.
+ *
+ * The weights are the principal eigenvector of the matrix, found by power iteration, and the consistency ratio of
+ * every matrix is logged. Nodes without a matrix weight their children equally, as pique.calibration.NaiveWeighter does.
+ *
+ * Weights are cached by the SHA-256 of the matrix file, in memory and in ahpWeights.json in the results directory,
+ * so unchanged matrices are never computed again.
+ */
+public class AHPWeighter implements IWeighter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AHPWeighter.class);
+
+    // Saaty's random consistency index by matrix size
+    private static final double[] RANDOM_INDEX = {0, 0, 0, 0.58, 0.90, 1.12, 1.24, 1.32, 1.41, 1.45, 1.49, 1.51, 1.48, 1.56, 1.57, 1.59};
+    private static final double MAX_CONSISTENCY_RATIO = 0.1;
+    private static final double TOLERANCE = 1e-12;
+    private static final int MAX_ITERATIONS = 1000;
+
+    private static final Map<String, Weights> COMPUTED = new ConcurrentHashMap<>();
+
+    private final Path comparisonMatrices;
+    private final Path cacheFile;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * Reads the matrices from comparisons.directory and caches weights in the results.directory.
+     */
+    public AHPWeighter() {
+        this(PiqueProperties.getConfiguration().getComparisonsDirectory(),
+            PiqueProperties.getConfiguration().getResultsDirectory().resolve("ahpWeights.json"));
+    }
+
+    /**
+     * @param comparisonMatrices directory of comparison matrix csv files
+     * @param cacheFile json file weights are cached in, null to only cache in memory
+     */
+    public AHPWeighter(Path comparisonMatrices, Path cacheFile) {
+        this.comparisonMatrices = comparisonMatrices;
+        this.cacheFile = cacheFile;
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getName();
+    }
+
+    /**
+     * @param externalInput optionally the directory of comparison matrices, overriding the one given on construction
+     */
+    @Override
+    public Set<WeightResult> elicitateWeights(QualityModel qualityModel, Path... externalInput) {
+        Path directory = externalInput != null && externalInput.length > 0 ? externalInput[0] : comparisonMatrices;
+        Map<String, Weights> weightsByNode = readMatrices(directory);
+
+        Map<String, ModelNode> nodes = new LinkedHashMap<>();
+        nodes.put(qualityModel.getTqi().getName(), qualityModel.getTqi());
+        nodes.putAll(qualityModel.getQualityAspects());
+        nodes.putAll(qualityModel.getProductFactors());
+        nodes.putAll(qualityModel.getMeasures());
+
+        Set<WeightResult> weightResults = new HashSet<>();
+        nodes.forEach((name, node) -> {
+            if (node.getChildren() == null || node.getChildren().isEmpty()) {
+                return;
+            }
+            WeightResult weightResult = new WeightResult(name);
+            Weights weights = weightsByNode.get(name);
+            if (weights != null && weights.matches(node.getChildren().keySet())) {
+                weights.values.forEach((child, weight) -> weightResult.setWeight(child, new BigDecimalWithContext(weight)));
+            } else {
+                if (weights != null) {
+                    LOGGER.warn("Comparison matrix of " + name + " compares " + weights.values.keySet()
+                        + " but the node's children are " + node.getChildren().keySet() + ", weighting them equally");
+                }
+                BigDecimal equalWeight = BigDecimal.ONE.divide(new BigDecimalWithContext(node.getChildren().size()), BigDecimalWithContext.getMC());
+                node.getChildren().keySet().forEach(child -> weightResult.setWeight(child, equalWeight));
+            }
+            weightResults.add(weightResult);
+        });
+        return weightResults;
+    }
+
+    /**
+     * @return weights of every matrix in directory by the name of the weighted node
+     */
+    private Map<String, Weights> readMatrices(Path directory) {
+        List<Path> matrixFiles = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.toString().endsWith(".csv")).sorted().forEach(matrixFiles::add);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to list comparison matrices in " + directory, e);
+        }
+
+        Map<String, Weights> stored = loadCache();
+        boolean computedAny = false;
+        Map<String, Weights> weightsByNode = new HashMap<>();
+        for (Path matrixFile : matrixFiles) {
+            String sha256;
+            try {
+                sha256 = HelperFunctions.sha256(matrixFile);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to read comparison matrix " + matrixFile, e);
+            }
+            Weights weights = COMPUTED.get(sha256);
+            if (weights == null) {
+                weights = stored.get(sha256);
+            }
+            if (weights == null) {
+                weights = compute(matrixFile);
+                computedAny = true;
+            }
+            COMPUTED.put(sha256, weights);
+            stored.put(sha256, weights);
+            weightsByNode.put(weights.node, weights);
+            if (weights.consistencyRatio > MAX_CONSISTENCY_RATIO) {
+                LOGGER.warn("Comparison matrix " + matrixFile.getFileName() + " of " + weights.node
+                    + " is inconsistent, consistency ratio " + weights.consistencyRatio);
+            } else {
+                LOGGER.info("Comparison matrix " + matrixFile.getFileName() + " of " + weights.node
+                    + ", consistency ratio " + weights.consistencyRatio);
+            }
+        }
+        if (computedAny) {
+            saveCache(stored);
+        }
+        return weightsByNode;
+    }
+
+    private static Weights compute(Path matrixFile) {
+        List<String[]> rows = new ArrayList<>();
+        CsvMapper csvMapper = new CsvMapper();
+        csvMapper.enable(CsvParser.Feature.WRAP_AS_ARRAY);
+        csvMapper.enable(CsvParser.Feature.SKIP_EMPTY_LINES);
+        try (MappingIterator<String[]> lines = csvMapper.readerFor(String[].class).readValues(matrixFile.toFile())) {
+            lines.forEachRemaining(rows::add);
+        } catch (IOException | RuntimeJsonMappingException e) {
+            throw new IllegalStateException("Unable to read comparison matrix " + matrixFile, e);
+        }
+        if (rows.size() < 2) {
+            throw new IllegalArgumentException("Comparison matrix " + matrixFile + " has no rows");
+        }
+
+        // the files are saved by Excel with a byte order mark in front of the node name
+        String node = rows.get(0)[0].replace("\uFEFF", "").trim();
+        int n = rows.size() - 1;
+        String[] children = new String[n];
+        double[][] matrix = new double[n][n];
+        for (int i = 0; i < n; i++) {
+            String[] cells = rows.get(i + 1);
+            if (cells.length < n + 1) {
+                throw new IllegalArgumentException("Row " + (i + 1) + " of comparison matrix " + matrixFile + " has "
+                    + (cells.length - 1) + " comparisons, expected " + n);
+            }
+            children[i] = cells[0].trim();
+            for (int j = 0; j < n; j++) {
+                matrix[i][j] = Double.parseDouble(cells[j + 1].trim());
+            }
+        }
+
+        double[] weights = principalEigenvector(matrix);
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            values.put(children[i], weights[i]);
+        }
+        return new Weights(node, values, consistencyRatio(matrix, weights));
+    }
+
+    /**
+     * @return the principal eigenvector of a positive matrix, normalized to sum to 1
+     */
+    static double[] principalEigenvector(double[][] matrix) {
+        int n = matrix.length;
+        double[] weights = new double[n];
+        double[] next = new double[n];
+        Arrays.fill(weights, 1.0 / n);
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            double sum = 0.0;
+            for (int i = 0; i < n; i++) {
+                double product = 0.0;
+                for (int j = 0; j < n; j++) {
+                    product += matrix[i][j] * weights[j];
+                }
+                next[i] = product;
+                sum += product;
+            }
+            double change = 0.0;
+            for (int i = 0; i < n; i++) {
+                next[i] /= sum;
+                change = Math.max(change, Math.abs(next[i] - weights[i]));
+            }
+            double[] swap = weights;
+            weights = next;
+            next = swap;
+            if (change < TOLERANCE) {
+                break;
+            }
+        }
+        return weights;
+    }
+
+    /**
+     * @return Saaty's consistency ratio CI / RI, CI = (lambda max - n) / (n - 1). 0 for matrices of up to 2 rows,
+     * which are always consistent.
+     */
+    static double consistencyRatio(double[][] matrix, double[] weights) {
+        int n = matrix.length;
+        if (n <= 2) {
+            return 0.0;
+        }
+        double lambdaMax = 0.0;
+        for (int i = 0; i < n; i++) {
+            double product = 0.0;
+            for (int j = 0; j < n; j++) {
+                product += matrix[i][j] * weights[j];
+            }
+            lambdaMax += product / weights[i];
+        }
+        lambdaMax /= n;
+        double consistencyIndex = (lambdaMax - n) / (n - 1);
+        double randomIndex = RANDOM_INDEX[Math.min(n, RANDOM_INDEX.length - 1)];
+        return Math.max(0.0, consistencyIndex / randomIndex);
+    }
+
+    private Map<String, Weights> loadCache() {
+        Map<String, Weights> stored = new HashMap<>();
+        if (cacheFile == null || !Files.isRegularFile(cacheFile)) {
+            return stored;
+        }
+        try {
+            Iterator<Map.Entry<String, JsonNode>> matrices = mapper.readTree(cacheFile.toFile()).fields();
+            while (matrices.hasNext()) {
+                Map.Entry<String, JsonNode> matrix = matrices.next();
+                Map<String, Double> values = new LinkedHashMap<>();
+                Iterator<Map.Entry<String, JsonNode>> weights = matrix.getValue().path("weights").fields();
+                while (weights.hasNext()) {
+                    Map.Entry<String, JsonNode> weight = weights.next();
+                    values.put(weight.getKey(), weight.getValue().asDouble());
+                }
+                stored.put(matrix.getKey(), new Weights(matrix.getValue().path("node").asText(), values,
+                    matrix.getValue().path("consistency_ratio").asDouble()));
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read " + cacheFile + ", computing the weights again", e);
+            stored.clear();
+        }
+        return stored;
+    }
+
+    private void saveCache(Map<String, Weights> stored) {
+        if (cacheFile == null) {
+            return;
+        }
+        ObjectNode root = mapper.createObjectNode();
+        new TreeMap<>(stored).forEach((sha256, weights) -> {
+            ObjectNode matrix = root.putObject(sha256);
+            matrix.put("node", weights.node);
+            matrix.put("consistency_ratio", weights.consistencyRatio);
+            ObjectNode values = matrix.putObject("weights");
+            weights.values.forEach(values::put);
+        });
+        try {
+            Files.createDirectories(cacheFile.toAbsolutePath().getParent());
+            mapper.writerWithDefaultPrettyPrinter().writeValue(cacheFile.toFile(), root);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write " + cacheFile + ", the weights will be computed again next time", e);
+        }
+    }
+
+    /**
+     * Weights of the children of one node, computed from one matrix.
+     */
+    static class Weights {
+        private final String node;
+        private final Map<String, Double> values;
+        private final double consistencyRatio;
+
+        Weights(String node, Map<String, Double> values, double consistencyRatio) {
+            this.node = node;
+            this.values = values;
+            this.consistencyRatio = consistencyRatio;
+        }
+
+        private boolean matches(Set<String> children) {
+            return values.keySet().equals(children);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package calibration;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pique.analysis.ITool;
+import pique.model.Diagnostic;
+import pique.model.ModelNode;
+import pique.model.QualityModel;
+import pique.utility.BigDecimalWithContext;
+import utilities.HelperFunctions;
+import utilities.WorkerPool;
+
+/**
+ * Derives mean/standard deviation thresholds the way pique.calibration.MeanSDBenchmarker does, but keeps the
+ * measure values of every benchmark project in a json file next to the derived model. On the next derivation only
+ * benchmark files that were added or changed are analyzed again, removed files are dropped, and the thresholds are
+ * recomputed from the stored values.
+ *
+ * Stored values are only reused while the blank model and the tools are unchanged, see the fingerprint passed to
+ * deriveThresholds. Projects are always aggregated in path order, so the thresholds are identical to a derivation
+ * that analyzes the whole benchmark again.
+ */
+public class IncrementalBenchmarker {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IncrementalBenchmarker.class);
+
+    public static final String MEAN_SD_BENCHMARKER = "pique.calibration.MeanSDBenchmarker";
+
+    private final Path measuresFile;
+    private final int threads;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    /**
+     * @param measuresFile json file holding the measure values of each benchmark project, created if missing
+     * @param threads number of changed benchmark projects to analyze concurrently
+     */
+    public IncrementalBenchmarker(Path measuresFile, int threads) {
+        this.measuresFile = measuresFile;
+        this.threads = threads;
+    }
+
+    /**
+     * @return true if the model declares the benchmark strategy this class reproduces
+     */
+    public static boolean supports(QualityModel qmDescription) {
+        return qmDescription.getBenchmarker() != null
+            && qmDescription.getBenchmarker().getClass().getName().equals(MEAN_SD_BENCHMARKER);
+    }
+
+    /**
+     * @param benchmarkRepository directory holding one benchmark project per file
+     * @param qmBase blank quality model, not modified
+     * @param tools tools to analyze changed projects with
+     * @param fingerprint identifies the blank model and tools the stored values were computed with. Stored values
+     *                    with a different fingerprint are discarded.
+     * @return measure name to {lower, upper} threshold
+     */
+    public Map<String, BigDecimal[]> deriveThresholds(Path benchmarkRepository, QualityModel qmBase, Set<ITool> tools,
+                                                      String fingerprint) {
+        Map<String, StoredProject> stored = load(fingerprint);
+        Map<String, StoredProject> current = new TreeMap<>();
+        Map<String, Path> changed = new LinkedHashMap<>();
+
+        for (Path project : HelperFunctions.listProjectFiles(benchmarkRepository)) {
+            String name = project.getFileName().toString();
+            String sha256 = hash(project);
+            StoredProject previous = stored.get(name);
+            if (previous != null && previous.sha256.equals(sha256)) {
+                current.put(name, previous);
+            } else {
+                current.put(name, new StoredProject(sha256, null));
+                changed.put(name, project);
+            }
+        }
+        LOGGER.info("Benchmark has " + current.size() + " projects, " + changed.size() + " of them new or changed, "
+            + (stored.size() - (current.size() - changed.size())) + " stored projects dropped or outdated");
+
+        try (WorkerPool pool = new WorkerPool(threads, 0, "benchmark")) {
+            Map<String, Future<Map<String, BigDecimal>>> analyses = new LinkedHashMap<>();
+            changed.forEach((name, project) -> analyses.put(name, pool.submit(() -> measureValues(project, qmBase, tools))));
+            for (Map.Entry<String, Future<Map<String, BigDecimal>>> analysis : analyses.entrySet()) {
+                current.get(analysis.getKey()).measures = analysis.getValue().get();
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to analyze benchmark project", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while analyzing the benchmark", e);
+        }
+
+        save(fingerprint, current);
+        return meanSDThresholds(current);
+    }
+
+    /**
+     * Runs the tools on a project and evaluates a copy of the blank model up to the measures.
+     */
+    private Map<String, BigDecimal> measureValues(Path project, QualityModel qmBase, Set<ITool> tools) {
+        QualityModel qualityModel = qmBase.clone();
+
+        Map<String, Diagnostic> allDiagnostics = new HashMap<>();
+        tools.forEach(tool -> allDiagnostics.putAll(tool.parseAnalysis(tool.analyze(project))));
+        allDiagnostics.forEach((diagnosticName, diagnostic) ->
+            qualityModel.getDiagnostic(diagnosticName).setChildren(diagnostic.getChildren()));
+
+        Map<String, BigDecimal> values = new TreeMap<>();
+        for (ModelNode measure : qualityModel.getMeasures().values()) {
+            values.put(measure.getName(), measure.getValue());
+        }
+        return values;
+    }
+
+    /**
+     * Threshold of each measure is {max(0, mean - sd), mean + sd} over all benchmark projects, sd being the
+     * population standard deviation.
+     */
+    static Map<String, BigDecimal[]> meanSDThresholds(Map<String, StoredProject> projects) {
+        Map<String, List<BigDecimal>> valuesPerMeasure = new TreeMap<>();
+        for (StoredProject project : projects.values()) {
+            project.measures.forEach((measure, value) ->
+                valuesPerMeasure.computeIfAbsent(measure, k -> new ArrayList<>()).add(value));
+        }
+
+        Map<String, BigDecimal[]> thresholds = new HashMap<>();
+        valuesPerMeasure.forEach((measure, values) -> {
+            BigDecimal n = new BigDecimalWithContext(values.size());
+            BigDecimal sum = new BigDecimalWithContext(0.0);
+            for (BigDecimal value : values) {
+                sum = sum.add(value);
+            }
+            BigDecimal mean = sum.divide(n, BigDecimalWithContext.getMC());
+
+            BigDecimal squaredDeviations = new BigDecimalWithContext(0.0);
+            for (BigDecimal value : values) {
+                BigDecimal deviation = value.subtract(mean);
+                squaredDeviations = squaredDeviations.add(deviation.multiply(deviation));
+            }
+            BigDecimal sd = sqrt(squaredDeviations.divide(n, BigDecimalWithContext.getMC()));
+
+            BigDecimal lower = mean.subtract(sd).max(BigDecimal.ZERO);
+            thresholds.put(measure, new BigDecimal[]{lower, mean.add(sd)});
+        });
+        return thresholds;
+    }
+
+    /**
+     * Square root to the precision of BigDecimalWithContext, by Newton's method starting from the double root.
+     */
+    static BigDecimal sqrt(BigDecimal value) {
+        if (value.signum() == 0) {
+            return value;
+        }
+        BigDecimal two = new BigDecimalWithContext(2);
+        BigDecimal root = new BigDecimalWithContext(Math.sqrt(value.doubleValue()));
+        for (int i = 0; i < 100; i++) {
+            BigDecimal next = root.add(value.divide(root, BigDecimalWithContext.getMC())).divide(two, BigDecimalWithContext.getMC());
+            if (next.compareTo(root) == 0) {
+                break;
+            }
+            root = next;
+        }
+        return root;
+    }
+
+    private Map<String, StoredProject> load(String fingerprint) {
+        Map<String, StoredProject> stored = new HashMap<>();
+        if (!Files.isRegularFile(measuresFile)) {
+            return stored;
+        }
+        try {
+            JsonNode root = mapper.readTree(measuresFile.toFile());
+            if (!fingerprint.equals(root.path("fingerprint").asText())) {
+                LOGGER.info("Blank model or tools changed since " + measuresFile + " was written, analyzing the whole benchmark");
+                return stored;
+            }
+            Iterator<Map.Entry<String, JsonNode>> projects = root.path("projects").fields();
+            while (projects.hasNext()) {
+                Map.Entry<String, JsonNode> project = projects.next();
+                Map<String, BigDecimal> measures = new TreeMap<>();
+                Iterator<Map.Entry<String, JsonNode>> values = project.getValue().path("measures").fields();
+                while (values.hasNext()) {
+                    Map.Entry<String, JsonNode> value = values.next();
+                    measures.put(value.getKey(), new BigDecimalWithContext(value.getValue().asText()));
+                }
+                stored.put(project.getKey(), new StoredProject(project.getValue().path("sha256").asText(), measures));
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to read " + measuresFile + ", analyzing the whole benchmark", e);
+            stored.clear();
+        }
+        return stored;
+    }
+
+    private void save(String fingerprint, Map<String, StoredProject> projects) {
+        ObjectNode root = mapper.createObjectNode();
+        root.put("benchmark_strategy", MEAN_SD_BENCHMARKER);
+        root.put("fingerprint", fingerprint);
+        ObjectNode projectsNode = root.putObject("projects");
+        projects.forEach((name, project) -> {
+            ObjectNode projectNode = projectsNode.putObject(name);
+            projectNode.put("sha256", project.sha256);
+            ObjectNode measuresNode = projectNode.putObject("measures");
+            // stored as text so the values read back are exactly the values written
+            project.measures.forEach((measure, value) -> measuresNode.put(measure, value.toString()));
+        });
+        try {
+            Files.createDirectories(measuresFile.toAbsolutePath().getParent());
+            mapper.writerWithDefaultPrettyPrinter().writeValue(measuresFile.toFile(), root);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write " + measuresFile + ", the next derivation will analyze the whole benchmark", e);
+        }
+    }
+
+    private static String hash(Path project) {
+        try {
+            return HelperFunctions.sha256(project);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read benchmark project " + project, e);
+        }
+    }
+
+    static class StoredProject {
+        private final String sha256;
+        private Map<String, BigDecimal> measures;
+
+        StoredProject(String sha256, Map<String, BigDecimal> measures) {
+            this.sha256 = sha256;
+            this.measures = measures;
+        }
+    }
+}
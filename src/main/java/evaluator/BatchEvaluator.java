@@ -0,0 +1,139 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package evaluator;
+
+import java.math.BigDecimal;
+import java.util.stream.IntStream;
+
+import pique.utility.BigDecimalWithContext;
+
+/**
+ * Scores many projects against one compiled model at once.
+ *
+ * Values are kept per node as a column over all projects, so every weighted sum is a loop over plain double
+ * columns (column += weight * childColumn) that the JIT can vectorize. Projects are split in chunks that are
+ * scored on separate cores, each chunk walking the whole model once.
+ *
+ * Measures pass their weighted sums through their utility function like CompiledQualityModel does, see
+ * UtilityFunctionTable. Values are computed on doubles, so they differ from the BigDecimal evaluation by
+ * rounding only, see WeightedAverageEvaluator.primitiveWeightedSum.
+ */
+public class BatchEvaluator {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final CompiledQualityModel model;
+
+    public BatchEvaluator(CompiledQualityModel model) {
+        this.model = model;
+    }
+
+    /**
+     * @param diagnostics diagnostic name of each column of findingCounts. Names the model does not know are ignored.
+     * @param findingCounts one row per project, the value (number of findings) of each diagnostic
+     * @return value of every model node for every project
+     */
+    public Result evaluate(String[] diagnostics, double[][] findingCounts) {
+        int projects = findingCounts.length;
+        double[][] values = new double[model.size()][projects];
+
+        for (int column = 0; column < diagnostics.length; column++) {
+            Integer node = model.diagnosticIndex.get(diagnostics[column]);
+            if (node == null) continue;
+            double[] nodeValues = values[node];
+            for (int project = 0; project < projects; project++) {
+                nodeValues[project] = findingCounts[project][column];
+            }
+        }
+
+        int chunks = (projects + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk ->
+            evaluate(values, chunk * CHUNK_SIZE, Math.min(projects, (chunk + 1) * CHUNK_SIZE)));
+        return new Result(model, values, projects);
+    }
+
+    private void evaluate(double[][] values, int from, int to) {
+        for (int i = 0; i < model.size(); i++) {
+            if (model.operations[i] == CompiledQualityModel.INPUT) continue;
+
+            double[] nodeValues = values[i];
+            int[] children = model.children[i];
+            double[] weights = model.primitiveWeights[i];
+            for (int c = 0; c < children.length; c++) {
+                double weight = weights[c];
+                double[] childValues = values[children[c]];
+                for (int project = from; project < to; project++) {
+                    nodeValues[project] += weight * childValues[project];
+                }
+            }
+            if (model.operations[i] == CompiledQualityModel.NON_NEGATIVE_WEIGHTED_SUM) {
+                for (int project = from; project < to; project++) {
+                    nodeValues[project] = Math.max(0.0, nodeValues[project]);
+                }
+            }
+            if (model.utilityFunctions.has(i)) {
+                model.utilityFunctions.apply(i, nodeValues, from, to);
+            }
+        }
+    }
+
+    /**
+     * Node values of a batch, one column of project values per compiled node.
+     */
+    public static class Result {
+        private final CompiledQualityModel model;
+        private final double[][] values;
+        private final int projects;
+
+        private Result(CompiledQualityModel model, double[][] values, int projects) {
+            this.model = model;
+            this.values = values;
+            this.projects = projects;
+        }
+
+        public int getProjects() {
+            return projects;
+        }
+
+        public double getValue(int node, int project) {
+            return values[node][project];
+        }
+
+        public double getTqi(int project) {
+            return values[model.size() - 1][project];
+        }
+
+        /**
+         * @return the values of one project in the form CompiledQualityModel.evaluate returns them, to be passed to
+         * CompiledQualityModel.apply for the per project export
+         */
+        public BigDecimal[] getProjectValues(int project) {
+            BigDecimal[] projectValues = new BigDecimal[values.length];
+            for (int i = 0; i < values.length; i++) {
+                projectValues[i] = new BigDecimalWithContext(values[i][project]);
+            }
+            return projectValues;
+        }
+    }
+}
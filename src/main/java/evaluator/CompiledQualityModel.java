@@ -0,0 +1,447 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package evaluator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import pique.model.ModelNode;
+import pique.model.QualityModel;
+import pique.utility.BigDecimalWithContext;
+import utilities.PiqueProperties;
+
+/**
+ * A derived quality model flattened for evaluation. Nodes are stored in topological order (children before
+ * parents) in plain arrays, children are referenced by index and weights are dense vectors parallel to the
+ * children, so a project is scored in a single pass over the arrays without any map lookups.
+ *
+ * The compiled model is immutable and shared by every project evaluated with the same model, see
+ * QualityModelCache.getCompiledModel. Only the evaluators this project uses can be compiled, they produce the
+ * same values as evaluating the ModelNode tree:
+ * <ul>
+ *     <li>evaluator.WeightedAverageEvaluator and pique.evaluation.DefaultFactorEvaluator, the weighted sum of the children</li>
+ *     <li>evaluator.QualityAspectEvaluator, the same sum limited to values &gt;= 0</li>
+ *     <li>pique.evaluation.DefaultDiagnosticEvaluator on diagnostics, whose values are the input of the evaluation</li>
+ * </ul>
+ * Like pique.model.Measure, measures pass their weighted sum through their normalizer and utility function. Only
+ * pique.evaluation.DefaultNormalizer, which leaves the value as is, and evaluator.UtilityFunction can be compiled, see
+ * UtilityFunctionTable.
+ */
+public class CompiledQualityModel {
+
+    public static final int TQI = 0;
+    public static final int QUALITY_ASPECT = 1;
+    public static final int PRODUCT_FACTOR = 2;
+    public static final int MEASURE = 3;
+    public static final int DIAGNOSTIC = 4;
+
+    static final byte INPUT = 0;
+    static final byte WEIGHTED_SUM = 1;
+    static final byte NON_NEGATIVE_WEIGHTED_SUM = 2;
+
+    private static final String DEFAULT_NORMALIZER = "pique.evaluation.DefaultNormalizer";
+    private static final String UTILITY_FUNCTION = "evaluator.UtilityFunction";
+
+    private static final BigDecimal ZERO = new BigDecimalWithContext(0.0);
+
+    final String[] names;
+    final int[] levels;
+    final byte[] operations;
+    final int[][] children;
+    final int[][] parents;
+    final BigDecimal[][] weights;
+    final double[][] primitiveWeights;
+    final UtilityFunctionTable utilityFunctions;
+    final Map<String, Integer> diagnosticIndex;
+    private final boolean primitive;
+
+    private CompiledQualityModel(List<Node> order, boolean primitive) {
+        int size = order.size();
+        names = new String[size];
+        levels = new int[size];
+        operations = new byte[size];
+        children = new int[size][];
+        weights = new BigDecimal[size][];
+        primitiveWeights = new double[size][];
+        utilityFunctions = new UtilityFunctionTable(size);
+        Map<String, Integer> diagnostics = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Node node = order.get(i);
+            names[i] = node.name;
+            levels[i] = node.level;
+            operations[i] = node.operation;
+            if (node.utility) {
+                utilityFunctions.set(i, node.thresholds, node.positive);
+            }
+            children[i] = new int[node.children.size()];
+            weights[i] = new BigDecimal[node.children.size()];
+            primitiveWeights[i] = new double[node.children.size()];
+            for (int c = 0; c < node.children.size(); c++) {
+                children[i][c] = node.children.get(c).index;
+                weights[i][c] = node.weights.get(c);
+                primitiveWeights[i][c] = node.weights.get(c).doubleValue();
+            }
+            if (node.level == DIAGNOSTIC) {
+                diagnostics.put(node.name, i);
+            }
+        }
+        parents = new int[size][];
+        int[] parentCount = new int[size];
+        for (int[] nodeChildren : children) {
+            for (int child : nodeChildren) parentCount[child]++;
+        }
+        for (int i = 0; i < size; i++) {
+            parents[i] = new int[parentCount[i]];
+            parentCount[i] = 0;
+        }
+        for (int i = 0; i < size; i++) {
+            for (int child : children[i]) parents[child][parentCount[child]++] = i;
+        }
+        this.diagnosticIndex = Collections.unmodifiableMap(diagnostics);
+        this.primitive = primitive;
+    }
+
+    /**
+     * @param qmLocation path to a derived quality model json file
+     * @return the compiled model, evaluating on doubles if evaluation.primitive is set
+     * @throws IOException if the model can not be read
+     * @throws IllegalArgumentException if the model uses an evaluator that can not be compiled
+     */
+    public static CompiledQualityModel compile(Path qmLocation) throws IOException {
+        ObjectMapper mapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        JsonNode tqi = mapper.readTree(qmLocation.toFile()).path("factors").path("tqi");
+        if (tqi.size() != 1) {
+            throw new IllegalArgumentException(qmLocation + " does not have exactly one tqi node");
+        }
+
+        List<Map<String, Node>> nodesPerLevel = new ArrayList<>();
+        for (int level = TQI; level <= DIAGNOSTIC; level++) {
+            nodesPerLevel.add(new HashMap<>());
+        }
+        List<Node> order = new ArrayList<>();
+        visit(tqi.elements().next(), TQI, nodesPerLevel, order);
+        return new CompiledQualityModel(order, PiqueProperties.usePrimitiveEvaluation());
+    }
+
+    // post-order walk, a node is appended once all of its children have been
+    private static Node visit(JsonNode json, int level, List<Map<String, Node>> nodesPerLevel, List<Node> order) {
+        String name = json.path("name").asText();
+        Node node = nodesPerLevel.get(level).get(name);
+        if (node != null) {
+            return node;
+        }
+        node = new Node(name, level, operation(json, level));
+        nodesPerLevel.get(level).put(name, node);
+        if (level == MEASURE) {
+            utilityFunction(json, node);
+        }
+
+        if (node.operation != INPUT) {
+            Iterator<Map.Entry<String, JsonNode>> childNodes = json.path("children").fields();
+            while (childNodes.hasNext()) {
+                Map.Entry<String, JsonNode> child = childNodes.next();
+                node.children.add(visit(child.getValue(), level + 1, nodesPerLevel, order));
+                JsonNode weight = json.path("weights").path(child.getKey());
+                node.weights.add(weight.isNumber() ? new BigDecimalWithContext(weight.decimalValue().toString()) : ZERO);
+            }
+        }
+        node.index = order.size();
+        order.add(node);
+        return node;
+    }
+
+    private static byte operation(JsonNode json, int level) {
+        String evalStrategy = json.path("eval_strategy").asText();
+        if (level == DIAGNOSTIC && evalStrategy.equals("pique.evaluation.DefaultDiagnosticEvaluator")) {
+            return INPUT;
+        }
+        switch (evalStrategy) {
+            case "evaluator.WeightedAverageEvaluator":
+            case "evaluator.PrimitiveWeightedAverageEvaluator":
+            case "pique.evaluation.DefaultFactorEvaluator":
+                return WEIGHTED_SUM;
+            case "evaluator.QualityAspectEvaluator":
+            case "evaluator.PrimitiveQualityAspectEvaluator":
+                return NON_NEGATIVE_WEIGHTED_SUM;
+            default:
+                throw new IllegalArgumentException("Can not compile eval_strategy " + evalStrategy + " of " + json.path("name").asText());
+        }
+    }
+
+    private static void utilityFunction(JsonNode json, Node node) {
+        String normalizer = json.path("normalizer").asText();
+        if (!normalizer.isEmpty() && !normalizer.equals(DEFAULT_NORMALIZER)) {
+            throw new IllegalArgumentException("Can not compile normalizer " + normalizer + " of " + node.name);
+        }
+        String utilityFunction = json.path("utility_function").asText();
+        if (!utilityFunction.equals(UTILITY_FUNCTION)) {
+            throw new IllegalArgumentException("Can not compile utility_function " + utilityFunction + " of " + node.name);
+        }
+        JsonNode thresholds = json.path("thresholds");
+        if (thresholds.isArray() && thresholds.size() == 2) {
+            node.thresholds = new BigDecimal[]{
+                new BigDecimalWithContext(thresholds.get(0).decimalValue().toString()),
+                new BigDecimalWithContext(thresholds.get(1).decimalValue().toString())};
+        }
+        node.positive = json.path("positive").asBoolean(false);
+        node.utility = true;
+    }
+
+    /**
+     * Scores one project.
+     *
+     * @param diagnosticValues value of each diagnostic that has findings, missing diagnostics are 0
+     * @return value of every node, indexed like the compiled nodes. The tqi is the last element.
+     */
+    public BigDecimal[] evaluate(Map<String, BigDecimal> diagnosticValues) {
+        BigDecimal[] values = new BigDecimal[names.length];
+        if (primitive) {
+            double[] primitiveValues = new double[names.length];
+            for (int i = 0; i < names.length; i++) {
+                if (operations[i] == INPUT) {
+                    BigDecimal value = diagnosticValues.get(names[i]);
+                    primitiveValues[i] = value == null ? 0.0 : value.doubleValue();
+                    values[i] = value == null ? ZERO : value;
+                } else {
+                    primitiveValues[i] = primitiveNode(i, primitiveValues);
+                    values[i] = new BigDecimalWithContext(primitiveValues[i]);
+                }
+            }
+            return values;
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (operations[i] == INPUT) {
+                BigDecimal value = diagnosticValues.get(names[i]);
+                values[i] = value == null ? ZERO : value;
+            } else {
+                values[i] = node(i, values);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Re-scores a project from a previous evaluation of it. Only the diagnostics whose value changed and their
+     * ancestors are recomputed, walking upwards in topological order and stopping wherever a recomputed value
+     * stays the same. The result equals evaluate(diagnosticValues) as long as previousValues were computed with
+     * the same model.
+     *
+     * @param previousValues values of the previous evaluation, see readValues. Not modified.
+     * @param diagnosticValues value of each diagnostic that has findings now, missing diagnostics are 0
+     * @return value of every node, indexed like the compiled nodes
+     */
+    public BigDecimal[] reevaluate(BigDecimal[] previousValues, Map<String, BigDecimal> diagnosticValues) {
+        BigDecimal[] values = previousValues.clone();
+        BitSet pending = new BitSet(names.length);
+        for (Map.Entry<String, Integer> diagnostic : diagnosticIndex.entrySet()) {
+            int i = diagnostic.getValue();
+            BigDecimal value = diagnosticValues.get(diagnostic.getKey());
+            if (value == null) value = ZERO;
+            if (value.compareTo(values[i]) != 0) {
+                values[i] = value;
+                for (int parent : parents[i]) pending.set(parent);
+            }
+        }
+        // parents always have a higher index than their children, so a parent is only visited once all of its
+        // changed children were
+        for (int i = pending.nextSetBit(0); i >= 0; i = pending.nextSetBit(i + 1)) {
+            BigDecimal value = primitive ? new BigDecimalWithContext(primitiveNode(i, values)) : node(i, values);
+            if (value.compareTo(values[i]) != 0) {
+                values[i] = value;
+                for (int parent : parents[i]) pending.set(parent);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads the node values of an evaluated model, e.g. a project exported by a previous evaluation.
+     *
+     * @param evaluatedModel json file of a model with the same structure as the compiled one
+     * @return value of every node, indexed like the compiled nodes
+     * @throws IOException if the file can not be read
+     * @throws IllegalArgumentException if the file misses nodes of the compiled model
+     */
+    public BigDecimal[] readValues(Path evaluatedModel) throws IOException {
+        ObjectMapper mapper = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+        JsonNode tqi = mapper.readTree(evaluatedModel.toFile()).path("factors").path("tqi");
+        List<Map<String, BigDecimal>> valuesPerLevel = new ArrayList<>();
+        for (int level = TQI; level <= DIAGNOSTIC; level++) {
+            valuesPerLevel.add(new HashMap<>());
+        }
+        Iterator<JsonNode> roots = tqi.elements();
+        while (roots.hasNext()) {
+            readValues(roots.next(), TQI, valuesPerLevel);
+        }
+
+        BigDecimal[] values = new BigDecimal[names.length];
+        for (int i = 0; i < names.length; i++) {
+            values[i] = valuesPerLevel.get(levels[i]).get(names[i]);
+            if (values[i] == null) {
+                throw new IllegalArgumentException(evaluatedModel + " has no value for " + names[i]);
+            }
+        }
+        return values;
+    }
+
+    private static void readValues(JsonNode json, int level, List<Map<String, BigDecimal>> valuesPerLevel) {
+        if (level > DIAGNOSTIC || valuesPerLevel.get(level).containsKey(json.path("name").asText())) {
+            return;
+        }
+        JsonNode value = json.path("value");
+        if (value.isNumber()) {
+            valuesPerLevel.get(level).put(json.path("name").asText(), new BigDecimalWithContext(value.decimalValue().toString()));
+        }
+        Iterator<JsonNode> childNodes = json.path("children").elements();
+        while (childNodes.hasNext()) {
+            readValues(childNodes.next(), level + 1, valuesPerLevel);
+        }
+    }
+
+    // same arithmetic as WeightedAverageEvaluator and QualityAspectEvaluator, followed by the utility function on measures
+    private BigDecimal node(int i, BigDecimal[] values) {
+        BigDecimal weightedSum = ZERO;
+        int[] nodeChildren = children[i];
+        BigDecimal[] nodeWeights = weights[i];
+        for (int c = 0; c < nodeChildren.length; c++) {
+            weightedSum = weightedSum.add(values[nodeChildren[c]].multiply(nodeWeights[c]));
+        }
+        if (operations[i] == NON_NEGATIVE_WEIGHTED_SUM && weightedSum.signum() < 0) {
+            return ZERO;
+        }
+        return utilityFunctions.has(i) ? utilityFunctions.utility(i, weightedSum) : weightedSum;
+    }
+
+    private double primitiveUtility(int i, double weightedSum) {
+        return utilityFunctions.has(i) ? utilityFunctions.utility(i, weightedSum) : weightedSum;
+    }
+
+    private double primitiveNode(int i, BigDecimal[] values) {
+        double weightedSum = 0.0;
+        int[] nodeChildren = children[i];
+        double[] nodeWeights = primitiveWeights[i];
+        for (int c = 0; c < nodeChildren.length; c++) {
+            weightedSum += values[nodeChildren[c]].doubleValue() * nodeWeights[c];
+        }
+        if (operations[i] == NON_NEGATIVE_WEIGHTED_SUM && weightedSum < 0.0) {
+            return 0.0;
+        }
+        return primitiveUtility(i, weightedSum);
+    }
+
+    private double primitiveNode(int i, double[] values) {
+        double weightedSum = 0.0;
+        int[] nodeChildren = children[i];
+        double[] nodeWeights = primitiveWeights[i];
+        for (int c = 0; c < nodeChildren.length; c++) {
+            weightedSum += values[nodeChildren[c]] * nodeWeights[c];
+        }
+        if (operations[i] == NON_NEGATIVE_WEIGHTED_SUM && weightedSum < 0.0) {
+            return 0.0;
+        }
+        return primitiveUtility(i, weightedSum);
+    }
+
+    /**
+     * Writes evaluated values into the measures, product factors, quality aspects and tqi of a model, so it can
+     * be exported like a model evaluated node by node. Diagnostics are left as they are.
+     *
+     * @param values result of evaluate
+     * @param qualityModel a copy of the model this was compiled from
+     */
+    public void apply(BigDecimal[] values, QualityModel qualityModel) {
+        for (int i = 0; i < names.length; i++) {
+            ModelNode node;
+            switch (levels[i]) {
+                case TQI: node = qualityModel.getTqi(); break;
+                case QUALITY_ASPECT: node = qualityModel.getQualityAspect(names[i]); break;
+                case PRODUCT_FACTOR: node = qualityModel.getProductFactor(names[i]); break;
+                case MEASURE: node = qualityModel.getMeasure(names[i]); break;
+                default: node = null;
+            }
+            if (node != null) {
+                node.setValue(values[i]);
+            }
+        }
+    }
+
+    /**
+     * @return number of compiled nodes
+     */
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int index) {
+        return names[index];
+    }
+
+    public int getLevel(int index) {
+        return levels[index];
+    }
+
+    /**
+     * @return true if nodes are evaluated on doubles, see evaluation.primitive
+     */
+    public boolean isPrimitive() {
+        return primitive;
+    }
+
+    /**
+     * @return utility functions of the measures, indexed like the compiled nodes
+     */
+    public UtilityFunctionTable getUtilityFunctions() {
+        return utilityFunctions;
+    }
+
+    private static class Node {
+        private final String name;
+        private final int level;
+        private final byte operation;
+        private final List<Node> children = new ArrayList<>();
+        private final List<BigDecimal> weights = new ArrayList<>();
+        private int index;
+        private boolean utility;
+        private BigDecimal[] thresholds;
+        private boolean positive;
+
+        private Node(String name, int level, byte operation) {
+            this.name = name;
+            this.level = level;
+            this.operation = operation;
+        }
+    }
+}
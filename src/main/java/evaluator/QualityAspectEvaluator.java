@@ -28,26 +28,45 @@ import java.math.BigDecimal;
 import pique.evaluation.Evaluator;
 import pique.model.ModelNode;
 import pique.utility.BigDecimalWithContext;
+import utilities.PiqueProperties;
 
 /**
  * Evaluator for Quality Aspects. Evaluates as a sum of nodes*weights but limits the score to [0,1]
+ *
+ * With evaluation.primitive=true (or eval_strategy evaluator.PrimitiveQualityAspectEvaluator) the sum is
+ * computed on doubles, within the error bound documented on WeightedAverageEvaluator.primitiveWeightedSum.
  * @author Andrew
  *
  */
 public class QualityAspectEvaluator extends Evaluator {
 
+    private final boolean primitive;
+
+    public QualityAspectEvaluator() {
+        this(PiqueProperties.usePrimitiveEvaluation());
+    }
+
+    protected QualityAspectEvaluator(boolean primitive) {
+        this.primitive = primitive;
+    }
+
     @Override
     public BigDecimal evaluate(ModelNode modelNode) {
+        if (primitive) {
+            double weightedSum = WeightedAverageEvaluator.primitiveWeightedSum(modelNode);
+            // same limits as the BigDecimal path below, whose upper limit never applies (compareTo never exceeds 1)
+            return weightedSum < 0.0 ? BigDecimal.ZERO : new BigDecimalWithContext(weightedSum);
+        }
         BigDecimal weightedSum = new BigDecimalWithContext(0.0);
 
         // Apply weighted sums
         for (ModelNode child : modelNode.getChildren().values()) {
             weightedSum = weightedSum.add(child.getValue().multiply(modelNode.getWeight(child.getName())));
         }
-        if (weightedSum.compareTo(new BigDecimalWithContext(1.0)) >1.0) {//weightedSum>1.0
+        if (weightedSum.compareTo(BigDecimal.ONE) >1.0) {//weightedSum>1.0
             weightedSum = new BigDecimalWithContext(1.0);
         }
-        else if (weightedSum.compareTo(new BigDecimalWithContext(0.0))<0) {//weightedSum<0.0
+        else if (weightedSum.signum()<0) {//weightedSum<0.0
             weightedSum = new BigDecimalWithContext(0.0);
         }
 
@@ -58,7 +77,7 @@ public class QualityAspectEvaluator extends Evaluator {
         int count = 0;
 
         for (ModelNode child : modelNode.getChildren().values()) {
-            if (modelNode.getWeight(child.getName()).compareTo(new BigDecimalWithContext(0.0))>0) count++;//modelNode.getWeight(child.getName())>0
+            if (modelNode.getWeight(child.getName()).signum()>0) count++;//modelNode.getWeight(child.getName())>0
         }
         return count;
     }
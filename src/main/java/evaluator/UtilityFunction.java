@@ -34,6 +34,11 @@ import pique.utility.BigDecimalWithContext;
 public class UtilityFunction implements IUtilityFunction {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(UtilityFunction.class);
+
+    // immutable, shared by all calls instead of being allocated for every comparison
+    private static final BigDecimal ZERO = new BigDecimalWithContext("0.0");
+    private static final BigDecimal ONE = new BigDecimalWithContext(1);
+
     /**
      * Apply the unbounded utility function
      * @param v the value to input to the utility function
@@ -44,17 +49,17 @@ public class UtilityFunction implements IUtilityFunction {
     @Override
     public BigDecimal utilityFunction(BigDecimal v, BigDecimal[] thresholds, boolean pos) {
         // If no thresholds yet, currently dealing with a non-derived model. Just return 0.
-        if (thresholds == null) return new BigDecimalWithContext("0.0");
+        if (thresholds == null) return ZERO;
 
         //if upper and lower threshold are equal, return the value or 0.5 if no findings
         //(0.5 implies it is equivalent to other projects in the benchmark repository)
-        if (thresholds[1].subtract(thresholds[0]).compareTo(new BigDecimalWithContext(0.0))==0) {
-            if (v.compareTo(new BigDecimalWithContext(0.0))==0) {
-                return new BigDecimalWithContext(1);
+        if (thresholds[1].compareTo(thresholds[0])==0) {
+            if (v.signum()==0) {
+                return ONE;
             }
             LOGGER.error("Finding reported with [0,0] thresholds.");
             if(pos) return v;
-            return (new BigDecimalWithContext(1).subtract(v));
+            return (ONE.subtract(v));
         }
         return linearInterpolationTwoPoints(v,thresholds, pos);
 
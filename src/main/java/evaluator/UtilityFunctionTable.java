@@ -0,0 +1,150 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package evaluator;
+
+import java.math.BigDecimal;
+
+import pique.utility.BigDecimalWithContext;
+
+/**
+ * UtilityFunction precomputed for the measures of a compiled model, indexed like the compiled nodes. Thresholds
+ * and polarity do not change after derivation, so the threshold difference is computed once per measure instead
+ * of on every call.
+ *
+ * The BigDecimal variant does the same arithmetic as UtilityFunction.utilityFunction and returns the same values.
+ * The primitive variant reduces each measure's linear interpolation to value * slope + offset, with
+ * slope = 1 / (upper - lower) and offset = -lower * slope, lower and upper being swapped for negative measures.
+ * Measures without thresholds or with equal thresholds are handled exactly as UtilityFunction does.
+ */
+public class UtilityFunctionTable {
+
+    private static final BigDecimal ZERO = new BigDecimalWithContext(0.0);
+    private static final BigDecimal ONE = new BigDecimalWithContext(1);
+
+    private final Entry[] entries;
+
+    /**
+     * @param size number of compiled nodes
+     */
+    UtilityFunctionTable(int size) {
+        this.entries = new Entry[size];
+    }
+
+    /**
+     * Gives a node the utility function of a measure, only called while the model is compiled.
+     *
+     * @param thresholds the measure's thresholds, null for a model that was not derived
+     * @param positive the measure's polarity
+     */
+    void set(int node, BigDecimal[] thresholds, boolean positive) {
+        entries[node] = new Entry(thresholds, positive);
+    }
+
+    /**
+     * @return true if the node is a measure whose values go through a utility function
+     */
+    public boolean has(int node) {
+        return entries[node] != null;
+    }
+
+    /**
+     * @return the utility of value, same as UtilityFunction.utilityFunction with the measure's thresholds and polarity
+     */
+    public BigDecimal utility(int node, BigDecimal value) {
+        return entries[node].utility(value);
+    }
+
+    /**
+     * Primitive variant of utility for the double evaluation paths.
+     */
+    public double utility(int node, double value) {
+        return entries[node].utility(value);
+    }
+
+    /**
+     * Replaces values[from] to values[to - 1] by their utility, for the columns of BatchEvaluator.
+     */
+    public void apply(int node, double[] values, int from, int to) {
+        Entry entry = entries[node];
+        if (entry.derived && !entry.equalThresholds) {
+            double slope = entry.primitiveSlope;
+            double offset = entry.primitiveOffset;
+            for (int i = from; i < to; i++) {
+                values[i] = values[i] * slope + offset;
+            }
+            return;
+        }
+        for (int i = from; i < to; i++) {
+            values[i] = entry.utility(values[i]);
+        }
+    }
+
+    private static class Entry {
+        private final boolean derived;
+        private final boolean equalThresholds;
+        private final boolean positive;
+        private final BigDecimal lower;
+        private final BigDecimal range;
+        private final double primitiveSlope;
+        private final double primitiveOffset;
+
+        private Entry(BigDecimal[] thresholds, boolean positive) {
+            this.positive = positive;
+            this.derived = thresholds != null;
+            this.equalThresholds = derived && thresholds[1].compareTo(thresholds[0]) == 0;
+            if (derived && !equalThresholds) {
+                // reverse the slope if measure is negative, see UtilityFunction.linearInterpolationTwoPoints
+                lower = positive ? thresholds[0] : thresholds[1];
+                BigDecimal upper = positive ? thresholds[1] : thresholds[0];
+                range = upper.subtract(lower);
+                BigDecimal slope = ONE.divide(range, BigDecimalWithContext.getMC());
+                primitiveSlope = slope.doubleValue();
+                primitiveOffset = lower.negate().multiply(slope, BigDecimalWithContext.getMC()).doubleValue();
+            } else {
+                lower = ZERO;
+                range = ZERO;
+                primitiveSlope = 0.0;
+                primitiveOffset = 0.0;
+            }
+        }
+
+        private BigDecimal utility(BigDecimal value) {
+            if (!derived) return ZERO;
+            if (equalThresholds) {
+                if (value.signum() == 0) return ONE;
+                return positive ? value : ONE.subtract(value);
+            }
+            return value.subtract(lower).divide(range, BigDecimalWithContext.getMC());
+        }
+
+        private double utility(double value) {
+            if (!derived) return 0.0;
+            if (equalThresholds) {
+                if (value == 0.0) return 1.0;
+                return positive ? value : 1.0 - value;
+            }
+            return value * primitiveSlope + primitiveOffset;
+        }
+    }
+}
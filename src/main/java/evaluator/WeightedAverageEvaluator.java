@@ -28,14 +28,31 @@ import java.math.BigDecimal;
 import pique.evaluation.Evaluator;
 import pique.model.ModelNode;
 import pique.utility.BigDecimalWithContext;
+import utilities.PiqueProperties;
 
 /**
  * Evaluates a node as the sum of children multiplied by their edge weight.
+ *
+ * With evaluation.primitive=true (or eval_strategy evaluator.PrimitiveWeightedAverageEvaluator) the sum is
+ * computed on doubles, see primitiveWeightedSum for the error bound.
  */
 public class WeightedAverageEvaluator extends Evaluator {
 
+    private final boolean primitive;
+
+    public WeightedAverageEvaluator() {
+        this(PiqueProperties.usePrimitiveEvaluation());
+    }
+
+    protected WeightedAverageEvaluator(boolean primitive) {
+        this.primitive = primitive;
+    }
+
     @Override
     public BigDecimal evaluate(ModelNode modelNode) {
+        if (primitive) {
+            return new BigDecimalWithContext(primitiveWeightedSum(modelNode));
+        }
         BigDecimal weightedSum = new BigDecimalWithContext(0.0);
         for (ModelNode child : modelNode.getChildren().values()) {
             weightedSum = weightedSum.add(
@@ -44,4 +61,24 @@ public class WeightedAverageEvaluator extends Evaluator {
         }
         return weightedSum;
     }
-}
\ No newline at end of file
+
+    /**
+     * Sum of children multiplied by their edge weight, accumulated in a double. Only the children's values and
+     * weights are converted, no BigDecimal is created per child.
+     *
+     * Each product rounds three times (value, weight, product) and adding the n products rounds n - 1 more
+     * times, each by a relative error of at most 2^-53. To first order the result differs from the BigDecimal
+     * sum by at most (n + 2) * 2^-53 * sum(|value * weight|). That is relative to the sum of absolute products,
+     * not to the result, which can be far smaller when products cancel. Values and weights of the derived C
+     * model are non-negative, so there the two are equal; its widest node, a measure over 92 diagnostics, stays
+     * within 94 * 2^-53, about 1.1e-14, of its value. A measure's utility function scales that absolute error by
+     * 1 / (upper - lower) threshold.
+     */
+    static double primitiveWeightedSum(ModelNode modelNode) {
+        double weightedSum = 0.0;
+        for (ModelNode child : modelNode.getChildren().values()) {
+            weightedSum += child.getValue().doubleValue() * modelNode.getWeight(child.getName()).doubleValue();
+        }
+        return weightedSum;
+    }
+}
@@ -0,0 +1,302 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package piqueVendor.runnable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pique.analysis.ITool;
+import utilities.HelperFunctions;
+import utilities.PiqueConfiguration;
+import utilities.PiqueProperties;
+import utilities.QualityModelCache;
+import utilities.RunMetrics;
+import utilities.WorkerPool;
+
+/**
+ * Keeps the JVM, properties, tools and derived model loaded and evaluates projects on request, so repeated
+ * evaluations do not pay for start up and model import each time.
+ *
+ * Clients connect to server.port on the loopback interface and send one request per line, each answered by one line:
+ * <pre>
+ *   EVAL &lt;path to project file&gt;   OK &lt;path to results json&gt; | BUSY | ERROR &lt;message&gt;
+ *   PING                           PONG
+ *   STATS                          run metrics of the jobs served so far as one line of json
+ *   SHUTDOWN                       BYE, then the server stops once running evaluations finished
+ * </pre>
+ * Requests on one connection are handled in order, open several connections to evaluate concurrently. At most
+ * evaluation.threads projects are evaluated at once and server.queue.capacity more wait for a worker, any request
+ * beyond that is answered BUSY right away so the client can back off and retry.
+ *
+ * Each project is evaluated into a directory of its own under results.directory/server (see jobResultsDirectory),
+ * so two files of the same name in different directories never share tool reports or exports.
+ */
+public class EvaluationServer implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(EvaluationServer.class);
+
+    private final ServerSocket serverSocket;
+    private final WorkerPool pool;
+    private final Semaphore slots;
+    private final Function<Path, Path> evaluation;
+    private final AtomicInteger connections = new AtomicInteger();
+    private volatile boolean running = true;
+    private boolean closed;
+
+    /**
+     * Loads the properties and the derived model and opens the server socket.
+     *
+     * @param propertiesLocation path to the properties file, null for the default
+     * @throws IOException if the port can not be bound
+     */
+    public EvaluationServer(String propertiesLocation) throws IOException {
+        this(load(propertiesLocation));
+    }
+
+    /**
+     * Loads the derived model and opens the server socket.
+     *
+     * @param configuration configuration to evaluate with
+     * @throws IOException if the port can not be bound
+     */
+    public EvaluationServer(PiqueConfiguration configuration) throws IOException {
+        this(configuration.getServerPort(), configuration.getEvaluationThreads(), configuration.getServerQueueCapacity(),
+            configuration.getEvaluationTimeoutSeconds(), evaluator(configuration.validateForEvaluation()));
+    }
+
+    /**
+     * @param port loopback port to listen on, 0 for any free port
+     * @param threads number of projects evaluated at once
+     * @param queueCapacity number of requests waiting for a worker before further requests are answered BUSY
+     * @param timeoutSeconds per evaluation timeout, 0 for none
+     * @param evaluation evaluates the project at the given path and returns the path of its results
+     */
+    EvaluationServer(int port, int threads, int queueCapacity, long timeoutSeconds, Function<Path, Path> evaluation)
+        throws IOException {
+        this.serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        this.pool = new WorkerPool(threads, timeoutSeconds, "server");
+        this.slots = new Semaphore(Math.max(1, threads) + queueCapacity);
+        this.evaluation = evaluation;
+    }
+
+    private static PiqueConfiguration load(String propertiesLocation) {
+        if (propertiesLocation == null) {
+            return PiqueProperties.getConfiguration();
+        }
+        PiqueConfiguration configuration = PiqueConfiguration.load(propertiesLocation);
+        PiqueProperties.install(configuration);
+        return configuration;
+    }
+
+    private static Function<Path, Path> evaluator(PiqueConfiguration configuration) {
+        Path resultsDir = configuration.getResultsDirectory();
+        Path qmLocation = configuration.getDerivedModel();
+        SingleProjectEvaluator evaluator = new SingleProjectEvaluator(configuration, false);
+        // jobs of the same project share a results directory, so they run one after the other
+        Map<Path, Object> projectLocks = new ConcurrentHashMap<>();
+
+        // import (and compile) the model now instead of on the first request
+        QualityModelCache.getModel(qmLocation);
+        if (configuration.useCompiledEvaluation()) {
+            QualityModelCache.getCompiledModel(qmLocation);
+        }
+        return projectPath -> {
+            Path project = projectPath.toAbsolutePath().normalize();
+            Path jobResultsDir = jobResultsDirectory(resultsDir, project);
+            Set<ITool> tools = SingleProjectEvaluator.createTools(configuration.withResultsDirectory(jobResultsDir));
+            synchronized (projectLocks.computeIfAbsent(project, key -> new Object())) {
+                return evaluator.runEvaluator(project, jobResultsDir, qmLocation, tools);
+            }
+        };
+    }
+
+    /**
+     * Tool reports and exports are named after the project's file name, so projects evaluated at the same time
+     * each get a results directory of their own, e.g. /a/main.c and /b/main.c.
+     *
+     * @return directory under resultsDir the results of the project are written to
+     */
+    static Path jobResultsDirectory(Path resultsDir, Path projectPath) {
+        Path project = projectPath.toAbsolutePath().normalize();
+        return resultsDir.resolve("server").resolve(project.getFileName() + "-" + HelperFunctions.sha256(project.toString()).substring(0, 16));
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Accepts connections until SHUTDOWN is requested or the server is closed, then waits for running
+     * evaluations to finish.
+     */
+    public void serve() {
+        // STATS and the summary written on shutdown cover the jobs of this server, not earlier runs in this JVM.
+        // Jobs run concurrently, so they share the server's metrics instead of each starting over.
+        RunMetrics.reset();
+        LOGGER.info("Evaluation server listening on " + serverSocket.getInetAddress().getHostAddress() + ":" + getPort());
+        try {
+            while (running) {
+                Socket socket = serverSocket.accept();
+                Thread connection = new Thread(() -> handle(socket), "server-connection-" + connections.incrementAndGet());
+                connection.setDaemon(true);
+                connection.start();
+            }
+        } catch (SocketException e) {
+            // the socket was closed by SHUTDOWN or close()
+        } catch (IOException e) {
+            LOGGER.error("Evaluation server stopped accepting connections", e);
+        } finally {
+            close();
+            RunMetrics.write("server");
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (Socket client = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(client.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            String request;
+            while ((request = in.readLine()) != null) {
+                out.println(process(request.trim()));
+                if (!running) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Lost connection to evaluation client", e);
+        }
+    }
+
+    /**
+     * @param request one request line
+     * @return the response line
+     */
+    String process(String request) {
+        int space = request.indexOf(' ');
+        String command = space < 0 ? request : request.substring(0, space);
+        String argument = space < 0 ? "" : request.substring(space + 1).trim();
+        switch (command.toUpperCase()) {
+            case "EVAL":
+                return evaluate(argument);
+            case "PING":
+                return "PONG";
+            case "STATS":
+                return RunMetrics.toJson().toString();
+            case "SHUTDOWN":
+                running = false;
+                closeSocket();
+                return "BYE";
+            default:
+                return "ERROR unknown request " + command;
+        }
+    }
+
+    private String evaluate(String project) {
+        if (project.isEmpty()) {
+            return "ERROR missing project path";
+        }
+        Path projectPath = Paths.get(project);
+        if (!Files.isRegularFile(projectPath)) {
+            return "ERROR no such file " + project;
+        }
+        if (!running) {
+            return "ERROR server is shutting down";
+        }
+        if (!slots.tryAcquire()) {
+            RunMetrics.increment("server.busy");
+            return "BUSY";
+        }
+        Future<Path> result;
+        try {
+            result = pool.submit(() -> {
+                try {
+                    return evaluation.apply(projectPath);
+                } finally {
+                    slots.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            slots.release();
+            return "ERROR server is shutting down";
+        }
+        try {
+            return "OK " + result.get().toAbsolutePath();
+        } catch (CancellationException e) {
+            return "ERROR evaluation timed out after " + pool.getTimeoutSeconds() + " seconds";
+        } catch (ExecutionException e) {
+            LOGGER.error("Evaluation of " + projectPath + " failed", e.getCause());
+            return "ERROR " + oneLine(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return "ERROR interrupted";
+        }
+    }
+
+    private static String oneLine(Throwable e) {
+        String message = e.getMessage() == null ? e.getClass().getName() : e.getMessage();
+        return message.replace('\r', ' ').replace('\n', ' ');
+    }
+
+    private void closeSocket() {
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            LOGGER.warn("Unable to close the evaluation server socket", e);
+        }
+    }
+
+    /**
+     * Stop accepting requests and let running and queued evaluations finish.
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        closeSocket();
+        if (!closed) {
+            closed = true;
+            pool.close();
+        }
+    }
+}
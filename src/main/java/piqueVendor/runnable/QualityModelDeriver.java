@@ -23,23 +23,39 @@
  */
 package piqueVendor.runnable;
 
+import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.Properties;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import calibration.AHPWeighter;
+import calibration.IncrementalBenchmarker;
+import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pique.analysis.ITool;
+import pique.calibration.WeightResult;
+import pique.model.ModelNode;
 import pique.model.QualityModel;
 import pique.model.QualityModelExport;
-import pique.model.QualityModelImport;
 import pique.runnable.AQualityModelDeriver;
 import tool.CPPCheckToolWrapper;
 import tool.FlawfinderToolWrapper;
+import tool.PrefetchingTool;
+import utilities.HelperFunctions;
+import utilities.PiqueConfiguration;
 import utilities.PiqueProperties;
+import utilities.QualityModelCache;
+import utilities.RunMetrics;
+import utilities.WorkerPool;
 
 /**
  * Utility driver class responsible for running the calibration module's procedure.
@@ -62,43 +78,178 @@ public class QualityModelDeriver extends AQualityModelDeriver {
         init(null);
     }
 
+    /**
+     * Derives the model described by the configuration. Settings shared by the whole process (tool process limit,
+     * tool result cache, run metrics) are still read from PiqueProperties, so the configuration has to agree with
+     * the installed one on those.
+     *
+     * @param configuration configuration to derive with
+     * @throws IllegalArgumentException if a setting the derivation needs is missing, or a process-wide setting
+     * differs from the installed configuration
+     */
+    public QualityModelDeriver(PiqueConfiguration configuration){
+        derive(configuration.validateForDerivation().requireProcessSettingsOf(PiqueProperties.getConfiguration()));
+    }
+
     private void init(String propertiesLocation){
-        LOGGER.info("Beginning deriver");
+        PiqueConfiguration configuration;
+        if (propertiesLocation == null) {
+            configuration = PiqueProperties.getConfiguration();
+        } else {
+            configuration = PiqueConfiguration.load(propertiesLocation);
+            PiqueProperties.install(configuration);
+        }
+        derive(configuration.validateForDerivation());
+    }
 
-        Properties prop = propertiesLocation==null ? PiqueProperties.getPropertiesDefault() : PiqueProperties.getProperties(propertiesLocation);
+    private void derive(PiqueConfiguration configuration){
+        LOGGER.info("Beginning deriver");
+        // the metrics written at the end cover this derivation only, not earlier runs in this JVM
+        RunMetrics.reset();
 
-        Path blankqmFilePath = Paths.get(prop.getProperty("blankqm.filepath"));
-        Path derivedModelFilePath = Paths.get(prop.getProperty("results.directory"));
+        Path blankqmFilePath = configuration.getBlankModel();
+        Path derivedModelFilePath = configuration.getResultsDirectory();
 
         // Initialize objects
         //why do we have projectRootFlag? TODO
         String projectRootFlag = "";
-        Path cppCheckLocation = Paths.get(prop.getProperty("tool.cppcheck.filepath"));
-
-        //remove leading slashes from
-        Path flawFinderLocation = Paths.get(prop.getProperty("tool.flawfinder.filepath"));
-        Path benchmarkRepo = Paths.get(prop.getProperty("benchmark.repo"));
-        Path comparisonMatrices = Paths.get(prop.getProperty("comparisons.directory"));
+        Path cppCheckLocation = configuration.getCppcheckPath();
+        Path flawFinderLocation = configuration.getFlawfinderPath();
+        Path benchmarkRepo = configuration.getBenchmarkRepository();
+        Path comparisonMatrices = configuration.getComparisonsDirectory();
 
         LOGGER.info("Loaded Properties");
 
-        ITool cppCheckToolWrapper = new CPPCheckToolWrapper(cppCheckLocation);
+        ITool cppCheckToolWrapper = new CPPCheckToolWrapper(cppCheckLocation, configuration);
         LOGGER.info("Initialized CPPCheck Tool Wrapper");
 
-        ITool flawfinderToolWrapper = new FlawfinderToolWrapper(flawFinderLocation);
+        ITool flawfinderToolWrapper = new FlawfinderToolWrapper(flawFinderLocation, configuration);
         LOGGER.info("Initialized Flawfinder Tool Wrapper");
 
         Set<ITool> tools = Stream.of(cppCheckToolWrapper).collect(Collectors.toSet());
         tools.addAll(Stream.of(flawfinderToolWrapper).collect(Collectors.toSet()));
 
-        QualityModelImport qmImport = new QualityModelImport(blankqmFilePath);
-        QualityModel qmDescription = qmImport.importQualityModel();
+        // the tool wrappers read their diagnostics from the same blank model, so this also warms the cache for them
+        QualityModel qmDescription = QualityModelCache.getModel(blankqmFilePath);
+
+        QualityModel derivedQualityModel;
+        int threads = configuration.getDerivationThreads();
+        RunMetrics.Stage derivation = RunMetrics.start("derivation");
+        try {
+            if (configuration.deriveIncrementally() && IncrementalBenchmarker.supports(qmDescription)) {
+                Path measuresFile = derivedModelFilePath.resolve("benchmarkMeasures.json");
+                String fingerprint = fingerprint(blankqmFilePath, cppCheckLocation, flawFinderLocation);
+                derivedQualityModel = deriveModelIncrementally(qmDescription, tools, benchmarkRepo, measuresFile, fingerprint, threads);
+            } else if (configuration.useBatchTools()) {
+                derivedQualityModel = deriveModelInBatches(qmDescription, tools, benchmarkRepo, projectRootFlag, threads);
+            } else if (threads > 1) {
+                derivedQualityModel = deriveModelInParallel(qmDescription, tools, benchmarkRepo, projectRootFlag, threads);
+            } else {
+                derivedQualityModel = deriveModel(qmDescription, tools, benchmarkRepo, projectRootFlag);
+            }
+            if (configuration.useAHPWeights() && !(qmDescription.getWeighter() instanceof AHPWeighter)) {
+                // weights do not depend on the thresholds, so replacing the model's weights afterwards is the same as
+                // deriving with the AHPWeighter in the first place
+                applyWeights(derivedQualityModel, new AHPWeighter(comparisonMatrices, derivedModelFilePath.resolve("ahpWeights.json")).elicitateWeights(derivedQualityModel, comparisonMatrices));
+            }
+        } finally {
+            derivation.close();
+        }
+
+        Path derivedModel = configuration.getDerivedModel().toAbsolutePath();
+        derivedModel.getParent().toFile().mkdirs();
+        Path jsonOutput = new QualityModelExport(derivedQualityModel)
+            .exportToJson(FilenameUtils.getBaseName(derivedModel.getFileName().toString()), derivedModel.getParent());
+
+        LOGGER.info("Quality Model derivation finished. You can find the file at " + jsonOutput.toAbsolutePath().toString());
+        RunMetrics.write("derivation");
+    }
+
+    /**
+     * Same three steps as deriveModel, but the thresholds come from an IncrementalBenchmarker that only analyzes
+     * the benchmark projects that changed since the last derivation.
+     */
+    private QualityModel deriveModelIncrementally(QualityModel qmDescription, Set<ITool> tools, Path benchmarkRepo,
+                                                  Path measuresFile, String fingerprint, int threads) {
+        // (1) Derive thresholds
+        Map<String, BigDecimal[]> thresholds = new IncrementalBenchmarker(measuresFile, threads)
+            .deriveThresholds(benchmarkRepo, qmDescription, tools, fingerprint);
+
+        // (2) Elicitate weights
+        Set<WeightResult> weights = qmDescription.getWeighter().elicitateWeights(qmDescription);
+
+        // (3) Apply results for thresholds and weights
+        for (ModelNode measure : qmDescription.getMeasures().values()) {
+            measure.setThresholds(thresholds.get(measure.getName()));
+        }
+        applyWeights(qmDescription, weights);
+        return qmDescription;
+    }
+
+    private static void applyWeights(QualityModel qualityModel, Set<WeightResult> weights) {
+        Map<String, ModelNode> weightedNodes = new HashMap<>();
+        weightedNodes.put(qualityModel.getTqi().getName(), qualityModel.getTqi());
+        weightedNodes.putAll(qualityModel.getQualityAspects());
+        weightedNodes.putAll(qualityModel.getProductFactors());
+        weightedNodes.putAll(qualityModel.getMeasures());
+        for (WeightResult weightResult : weights) {
+            ModelNode node = weightedNodes.get(weightResult.getName());
+            if (node != null) {
+                node.setWeights(weightResult.getWeights());
+            }
+        }
+    }
 
-        QualityModel derivedQualityModel = deriveModel(qmDescription, tools, benchmarkRepo, projectRootFlag);
+    /**
+     * Identifies the blank model and tool versions benchmark measure values were computed with.
+     */
+    private static String fingerprint(Path blankqmFilePath, Path cppCheckLocation, Path flawFinderLocation) {
+        try {
+            return HelperFunctions.sha256(HelperFunctions.sha256(blankqmFilePath),
+                HelperFunctions.sha256(cppCheckLocation), HelperFunctions.sha256(flawFinderLocation));
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read the blank model or the tools", e);
+        }
+    }
 
-        Path jsonOutput = new QualityModelExport(derivedQualityModel).exportToJson(derivedQualityModel.getName(), derivedModelFilePath);
+    /**
+     * Derive the model while the benchmark projects are analyzed on a worker pool.
+     * The tools are wrapped in PrefetchingTools that start analyzing and parsing every benchmark project up front,
+     * the benchmarker then walks the projects in its usual order and collects the prefetched results. Thresholds
+     * are therefore computed from the same values in the same order as a serial derivation, whatever order the
+     * analyses finish in.
+     */
+    private QualityModel deriveModelInParallel(QualityModel qmDescription, Set<ITool> tools, Path benchmarkRepo,
+                                               String projectRootFlag, int threads) {
+        List<Path> benchmarkProjects = HelperFunctions.listProjectFiles(benchmarkRepo);
+        LOGGER.info("Analyzing " + benchmarkProjects.size() + " benchmark projects with " + threads + " worker threads");
+
+        try (WorkerPool pool = new WorkerPool(threads, 0, "benchmark")) {
+            List<PrefetchingTool> prefetchingTools = new ArrayList<>();
+            tools.forEach(tool -> prefetchingTools.add(tool instanceof PrefetchingTool ? (PrefetchingTool) tool : new PrefetchingTool(tool)));
+
+            // queue project by project so the projects the benchmarker needs first are analyzed first
+            for (Path project : benchmarkProjects) {
+                prefetchingTools.forEach(tool -> tool.prefetch(Collections.singletonList(project), pool));
+            }
+            return deriveModel(qmDescription, new HashSet<>(prefetchingTools), benchmarkRepo, projectRootFlag);
+        }
+    }
 
-        LOGGER.info("Quality Model derivation finished. You can find the file at " + jsonOutput.toAbsolutePath().toString());
+    /**
+     * Derive the model after batch capable tools analyzed the whole benchmark in one run each, see tool.IBatchTool.
+     * The remaining tools analyze the benchmark as usual, on a worker pool when more than one thread is configured.
+     */
+    private QualityModel deriveModelInBatches(QualityModel qmDescription, Set<ITool> tools, Path benchmarkRepo,
+                                              String projectRootFlag, int threads) {
+        List<Path> benchmarkProjects = HelperFunctions.listProjectFiles(benchmarkRepo);
+        LOGGER.info("Analyzing " + benchmarkProjects.size() + " benchmark projects in batches");
+
+        Set<ITool> batchedTools = new HashSet<>(PrefetchingTool.batch(tools, benchmarkProjects));
+        if (threads > 1) {
+            return deriveModelInParallel(qmDescription, batchedTools, benchmarkRepo, projectRootFlag, threads);
+        }
+        return deriveModel(qmDescription, batchedTools, benchmarkRepo, projectRootFlag);
     }
 
 }
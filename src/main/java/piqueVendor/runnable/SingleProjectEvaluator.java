@@ -24,26 +24,41 @@
 package piqueVendor.runnable;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import org.apache.commons.io.FilenameUtils;
 
+import evaluator.BatchEvaluator;
+import evaluator.CompiledQualityModel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pique.analysis.ITool;
 import pique.evaluation.Project;
 import pique.model.Diagnostic;
 import pique.model.QualityModel;
-import pique.model.QualityModelImport;
 import pique.runnable.ASingleProjectEvaluator;
 import tool.CPPCheckToolWrapper;
+import tool.FindingCollector;
 import tool.FlawfinderToolWrapper;
+import tool.PrefetchingTool;
+import utilities.HelperFunctions;
+import utilities.PiqueConfiguration;
 import utilities.PiqueProperties;
+import utilities.QualityModelCache;
+import utilities.RunMetrics;
+import utilities.WorkerPool;
 
 /**
  * Behavioral class responsible for running TQI evaluation of a single project
@@ -54,7 +69,13 @@ import utilities.PiqueProperties;
 public class SingleProjectEvaluator extends ASingleProjectEvaluator {
     private static final Logger LOGGER = LoggerFactory.getLogger(SingleProjectEvaluator.class);
 
-    private Project project;
+    /** appended to the name of an export for the file recording how it was scored */
+    static final String SCORING_SUFFIX = ".scoring";
+
+    private volatile Project project;
+    private PiqueConfiguration configuration;
+    private final Map<Path, String> scoringFingerprints = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Path>> previousResults = new ConcurrentHashMap<>();
 
     //quick fix, FIXME
     public SingleProjectEvaluator(){
@@ -65,39 +86,122 @@ public class SingleProjectEvaluator extends ASingleProjectEvaluator {
         init(propertiesLocation);
     }
 
+    /**
+     * Evaluates every project of the configuration's project.root. Settings shared by the whole process (tool
+     * process limit, tool result cache, run metrics, primitive evaluation) are still read from PiqueProperties, so
+     * the configuration has to agree with the installed one on those.
+     *
+     * @param configuration configuration to evaluate with
+     * @throws IllegalArgumentException if a setting the evaluation needs is missing, or a process-wide setting
+     * differs from the installed configuration
+     */
+    public SingleProjectEvaluator(PiqueConfiguration configuration){
+        this(configuration, true);
+    }
+
+    /**
+     * @param evaluateProjectRoot false for an evaluator that evaluates nothing on construction, for callers that
+     *                            run runEvaluator themselves (see EvaluationServer)
+     */
+    SingleProjectEvaluator(PiqueConfiguration configuration, boolean evaluateProjectRoot){
+        this.configuration = configuration.validateForEvaluation()
+            .requireProcessSettingsOf(PiqueProperties.getConfiguration());
+        if (evaluateProjectRoot) {
+            evaluate();
+        }
+    }
+
+    /**
+     * Loads the properties file, makes it the process-wide configuration and evaluates its project.root.
+     *
+     * @param propertiesLocation path to the properties file, null for the properties already loaded or the default
+     */
     public void init(String propertiesLocation){
-        LOGGER.info("Beginning Evaluation");
-        Properties prop = propertiesLocation==null ? PiqueProperties.getPropertiesDefault() : PiqueProperties.getProperties(propertiesLocation);
+        if (propertiesLocation == null) {
+            configuration = PiqueProperties.getConfiguration();
+        } else {
+            configuration = PiqueConfiguration.load(propertiesLocation);
+            PiqueProperties.install(configuration);
+        }
+        configuration.validateForEvaluation();
+        evaluate();
+    }
 
-        Path projectRoot = Paths.get(prop.getProperty("project.root"));
-        Path resultsDir = Paths.get(prop.getProperty("results.directory"));
+    private void evaluate(){
+        LOGGER.info("Beginning Evaluation");
+        // the metrics written at the end cover this evaluation only, not earlier runs in this JVM
+        RunMetrics.reset();
+        Path resultsDir = configuration.getResultsDirectory();
 
         // Initialize objects
-        Path toolLocation = Paths.get("tool.cppcheck.filepath");
-        Path toolLocation2 = Paths.get("tool.flawfinder.filepath");
-        Path qmLocation = Paths.get("out/CVendorQualityModel.json");
+        Path qmLocation = configuration.getDerivedModel();
+        Set<ITool> tools = createTools(configuration);
+
+        if (configuration.getPreviousResultsDirectory() != null && !configuration.useCompiledEvaluation()) {
+            LOGGER.warn("evaluation.previous.results is only used with evaluation.compiled=true, evaluating every project in full");
+        }
+
+        List<Path> projectRoots = HelperFunctions.listProjectFiles(configuration.getProjectRoot());
+        try {
+            evaluateAll(projectRoots, resultsDir, qmLocation, tools);
+        } finally {
+            RunMetrics.write("evaluation");
+        }
+    }
 
-        ITool flawfinderToolWrapper = new FlawfinderToolWrapper(toolLocation);
+    static Set<ITool> createTools(PiqueConfiguration configuration) {
+        ITool flawfinderToolWrapper = new FlawfinderToolWrapper(configuration.getFlawfinderPath(), configuration);
         Set<ITool> tools = Stream.of(flawfinderToolWrapper).collect(Collectors.toSet());
-        ITool cppCheckToolWrapper = new CPPCheckToolWrapper(toolLocation2);
+        ITool cppCheckToolWrapper = new CPPCheckToolWrapper(configuration.getCppcheckPath(), configuration);
         tools.addAll(Stream.of(cppCheckToolWrapper).collect(Collectors.toSet()));
+        return tools;
+    }
+
+    private void evaluateAll(List<Path> projectRoots, Path resultsDir, Path qmLocation, Set<ITool> configuredTools) {
+        int threads = configuration.getEvaluationThreads();
+        long timeoutSeconds = configuration.getEvaluationTimeoutSeconds();
+        LOGGER.info("Evaluating " + projectRoots.size() + " projects with " + threads + " worker threads");
 
-        Set<Path> projectRoots = new HashSet<>();
-        File[] filesToAssess = projectRoot.toFile().listFiles();
-        for (File file : filesToAssess) {
-            if (file.isFile()) {
-                projectRoots.add(file.toPath());
+        // batch capable tools analyze every project up front, runEvaluator picks up their results
+        Set<ITool> tools = configuration.useBatchTools()
+            ? new HashSet<>(PrefetchingTool.batch(configuredTools, projectRoots)) : configuredTools;
+
+        if (configuration.useBatchEvaluation()) {
+            try (WorkerPool pool = new WorkerPool(threads, timeoutSeconds, "evaluator")) {
+                runBatchEvaluator(projectRoots, resultsDir, qmLocation, tools, pool);
             }
-        }
-        for (Path projectPath : projectRoots) {
-            Path outputPath = runEvaluator(projectPath, resultsDir, qmLocation, tools);
-            System.out.println("output: " + outputPath.getFileName());
-            System.out.println();
+            return;
         }
 
+        // each project is evaluated on its own QualityModel instance, see runEvaluator
+        Map<Path, Future<Path>> evaluations = new LinkedHashMap<>();
+        try (WorkerPool pool = new WorkerPool(threads, timeoutSeconds, "evaluator")) {
+            for (Path projectPath : projectRoots) {
+                evaluations.put(projectPath, pool.submit(() -> runEvaluator(projectPath, resultsDir, qmLocation, tools)));
+            }
+            for (Map.Entry<Path, Future<Path>> evaluation : evaluations.entrySet()) {
+                try {
+                    Path outputPath = evaluation.getValue().get();
+                    System.out.println("output: " + outputPath.getFileName());
+                    System.out.println();
+                } catch (CancellationException e) {
+                    LOGGER.error("Evaluation of " + evaluation.getKey() + " timed out after " + timeoutSeconds + " seconds");
+                } catch (ExecutionException e) {
+                    LOGGER.error("Evaluation of " + evaluation.getKey() + " failed", e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOGGER.error("Interrupted while waiting on evaluation of " + evaluation.getKey());
+                    return;
+                }
+            }
+        }
     }
 
 
+    /**
+     * @return the project evaluated last. When several projects are evaluated concurrently this is
+     * whichever finished most recently.
+     */
     public Project getEvaluatedProject() {
         return project;
     }
@@ -122,41 +226,283 @@ public class SingleProjectEvaluator extends ASingleProjectEvaluator {
 
         // Initialize data structures
         initialize(projectDir, resultsDir, qmLocation);
-        QualityModelImport qmImport = new QualityModelImport(qmLocation);
-        QualityModel qualityModel = qmImport.importQualityModel();
-        project = new Project(FilenameUtils.getBaseName(projectDir.getFileName().toString()), projectDir, qualityModel);
+        QualityModel qualityModel = QualityModelCache.getModel(qmLocation);
+        Project project = new Project(projectName(projectDir), projectDir, qualityModel);
 
         // Validate State
         // TODO: validate more objects such as if the quality model has thresholds and weights, are there expected diagnostics, etc
         validatePreEvaluationState(project);
 
-        // Run the static analysis tools process
-        Map<String, Diagnostic> allDiagnostics = new HashMap<>();
-        tools.forEach(tool -> {
-            allDiagnostics.putAll(runTool(projectDir, tool));
-        });
+        Map<String, Diagnostic> allDiagnostics = runTools(projectDir, tools);
 
         allDiagnostics.forEach((diagnosticName, diagnostic) -> {
             project.getQualityModel().getDiagnostic(diagnosticName).setChildren(diagnostic.getChildren());
             project.getQualityModel().getDiagnostic(diagnosticName).setValue(diagnostic.getValue());
         });
 
-        project.getQualityModel().getMeasures().forEach((measureName, measure) -> {
-            project.getQualityModel().getMeasure(measureName).setValue(measure.getValue());
-        });
+        RunMetrics.Stage scoring = RunMetrics.start("evaluation.score");
+        String scoringFingerprint = null;
+        try {
+            if (configuration.useCompiledEvaluation()) {
+                // one pass over the compiled model instead of evaluating the tree node by node
+                CompiledQualityModel compiledModel = QualityModelCache.getCompiledModel(qmLocation);
+                scoringFingerprint = scoringFingerprint(qmLocation, compiledModel);
+                Map<String, BigDecimal> diagnosticValues = diagnosticValues(allDiagnostics);
+                BigDecimal[] values = null;
+                Path previousResults = findPreviousResults(project.getName(), scoringFingerprint);
+                if (previousResults != null) {
+                    // only recompute the ancestors of diagnostics that changed since the previous evaluation
+                    try {
+                        values = compiledModel.reevaluate(compiledModel.readValues(previousResults), diagnosticValues);
+                    } catch (IOException | IllegalArgumentException e) {
+                        LOGGER.warn("Unable to reuse " + previousResults + ", evaluating " + projectDir + " in full", e);
+                    }
+                }
+                if (values == null) {
+                    values = compiledModel.evaluate(diagnosticValues);
+                }
+                compiledModel.apply(values, project.getQualityModel());
+            } else {
+                project.getQualityModel().getMeasures().forEach((measureName, measure) -> {
+                    project.getQualityModel().getMeasure(measureName).setValue(measure.getValue());
+                });
 
-        project.getQualityModel().getProductFactors().forEach((pfName, pf) -> {
-            project.getQualityModel().getProductFactor(pfName).setValue(pf.getValue());
-        });
+                project.getQualityModel().getProductFactors().forEach((pfName, pf) -> {
+                    project.getQualityModel().getProductFactor(pfName).setValue(pf.getValue());
+                });
 
-        project.getQualityModel().getQualityAspects().forEach((qaName, qa) -> {
-            project.getQualityModel().getQualityAspect(qaName).setValue(qa.getValue());
-        });
+                project.getQualityModel().getQualityAspects().forEach((qaName, qa) -> {
+                    project.getQualityModel().getQualityAspect(qaName).setValue(qa.getValue());
+                });
 
-        BigDecimal tqiValue = project.evaluateTqi();
+                BigDecimal tqiValue = project.evaluateTqi();
+            }
+        } finally {
+            scoring.close();
+        }
+        this.project = project;
+        RunMetrics.increment("projects.evaluated");
 
         // Create a file of the results and return its path
-        return project.exportToJson(resultsDir);
+        Path results = RunMetrics.time("evaluation.export", () -> project.exportToJson(resultsDir));
+        recordScoring(results, project.getName(), scoringFingerprint);
+        return results;
+    }
+
+    /**
+     * @return the name a project's results are exported under, its full file name so that e.g. foo.c and foo.h of
+     * one project.root do not overwrite each other's results
+     */
+    static String projectName(Path projectDir) {
+        return projectDir.getFileName().toString();
+    }
+
+    private static Map<String, BigDecimal> diagnosticValues(Map<String, Diagnostic> diagnostics) {
+        Map<String, BigDecimal> diagnosticValues = new HashMap<>();
+        diagnostics.forEach((diagnosticName, diagnostic) -> diagnosticValues.put(diagnosticName, diagnostic.getValue()));
+        return diagnosticValues;
+    }
+
+    /**
+     * @return identifies how the compiled model scores projects: the model file and whether it evaluates on doubles
+     */
+    String scoringFingerprint(Path qmLocation, CompiledQualityModel compiledModel) {
+        return scoringFingerprints.computeIfAbsent(qmLocation, location -> {
+            try {
+                return "compiled " + (compiledModel.isPrimitive() ? "double" : "BigDecimal") + " " + HelperFunctions.sha256(location);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * @return the json file a previous evaluation exported for the project, if it was scored the same way this
+     * evaluation scores it, or null. Exports are found through the scoring files recordScoring wrote next to them
+     * in the evaluation.previous.results directory.
+     */
+    Path findPreviousResults(String projectName, String scoringFingerprint) {
+        Path previousResultsDirectory = configuration.getPreviousResultsDirectory();
+        if (previousResultsDirectory == null) return null;
+        return previousResults
+            .computeIfAbsent(scoringFingerprint, fingerprint -> indexPreviousResults(previousResultsDirectory, fingerprint))
+            .get(projectName);
+    }
+
+    private static Map<String, Path> indexPreviousResults(Path directory, String scoringFingerprint) {
+        Map<String, Path> exports = new HashMap<>();
+        File[] scoringFiles = directory.toFile().listFiles((dir, name) -> name.endsWith(SCORING_SUFFIX));
+        if (scoringFiles == null) {
+            LOGGER.warn("Unable to list previous results in " + directory + ", evaluating every project in full");
+            return exports;
+        }
+        for (File scoringFile : scoringFiles) {
+            Properties scoring = new Properties();
+            try (Reader reader = Files.newBufferedReader(scoringFile.toPath())) {
+                scoring.load(reader);
+            } catch (IOException e) {
+                LOGGER.warn("Unable to read " + scoringFile + ", its export is not reused", e);
+                continue;
+            }
+            String name = scoringFile.getName();
+            File export = new File(scoringFile.getParentFile(), name.substring(0, name.length() - SCORING_SUFFIX.length()));
+            // an export rewritten after its scoring file was not scored the way the file says
+            if (scoringFingerprint.equals(scoring.getProperty("scoring")) && scoring.getProperty("project") != null
+                    && export.isFile() && export.lastModified() <= scoringFile.lastModified()) {
+                exports.put(scoring.getProperty("project"), export.toPath());
+            }
+        }
+        LOGGER.info("Reusing the previous results of " + exports.size() + " projects in " + directory);
+        return exports;
+    }
+
+    /**
+     * Records next to an export how it was scored, so later evaluations only re-score projects from exports of
+     * the same model and evaluation mode.
+     *
+     * @param scoringFingerprint see scoringFingerprint, null if the export can not be re-scored from. Any record
+     *                           of an earlier export to the same file is removed then.
+     */
+    static void recordScoring(Path results, String projectName, String scoringFingerprint) {
+        Path scoringFile = results.resolveSibling(results.getFileName() + SCORING_SUFFIX);
+        try {
+            if (scoringFingerprint == null) {
+                Files.deleteIfExists(scoringFile);
+                return;
+            }
+            Properties scoring = new Properties();
+            scoring.setProperty("project", projectName);
+            scoring.setProperty("scoring", scoringFingerprint);
+            try (Writer writer = Files.newBufferedWriter(scoringFile)) {
+                scoring.store(writer, null);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to record how " + results + " was scored, it will not be re-scored from", e);
+        }
+    }
+
+    /**
+     * Run the static analysis tools process. The tools are independent of each other so they run in parallel, on
+     * threads of their own since the caller is usually a worker of the evaluation pool. The number of tool
+     * processes alive at once is capped by ProcessScheduler.
+     */
+    private Map<String, Diagnostic> runTools(Path projectDir, Set<ITool> tools) {
+        Map<String, Diagnostic> allDiagnostics = new HashMap<>();
+        List<Future<Map<String, Diagnostic>>> runs = new ArrayList<>();
+        try (WorkerPool pool = new WorkerPool(tools.size(), 0, "tools")) {
+            for (ITool tool : tools) {
+                runs.add(pool.submit(() -> runMeasuredTool(projectDir, tool)));
+            }
+            try {
+                for (Future<Map<String, Diagnostic>> run : runs) {
+                    if (configuration.deduplicateFindings()) {
+                        // diagnostics reported by several tools are combined instead of replaced
+                        FindingCollector.merge(allDiagnostics, run.get());
+                    } else {
+                        allDiagnostics.putAll(run.get());
+                    }
+                }
+            } catch (InterruptedException e) {
+                // the evaluation timed out, stop the tools before the pool waits on them
+                runs.forEach(run -> run.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while analyzing " + projectDir, e);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to analyze " + projectDir, e.getCause());
+        }
+        return allDiagnostics;
+    }
+
+    private Map<String, Diagnostic> runMeasuredTool(Path projectDir, ITool tool) {
+        return RunMetrics.time("tool." + tool.getName(), () -> runTool(projectDir, tool));
+    }
+
+    /**
+     * Evaluates all projects as one batch. The tools run per project on the pool, then all projects are scored
+     * at once by a BatchEvaluator and each project is exported like runEvaluator does.
+     *
+     * @return path of the exported results of each project that was evaluated
+     */
+    Map<Path, Path> runBatchEvaluator(List<Path> projectRoots, Path resultsDir, Path qmLocation, Set<ITool> tools, WorkerPool pool) {
+        Map<Path, Path> results = new LinkedHashMap<>();
+        CompiledQualityModel compiledModel = QualityModelCache.getCompiledModel(qmLocation);
+
+        Map<Path, Future<Map<String, Diagnostic>>> analyses = new LinkedHashMap<>();
+        for (Path projectPath : projectRoots) {
+            analyses.put(projectPath, pool.submit(() -> {
+                initialize(projectPath, resultsDir, qmLocation);
+                return runTools(projectPath, tools);
+            }));
+        }
+        List<Path> projects = new ArrayList<>();
+        List<Map<String, Diagnostic>> projectDiagnostics = new ArrayList<>();
+        for (Map.Entry<Path, Future<Map<String, Diagnostic>>> analysis : analyses.entrySet()) {
+            try {
+                projectDiagnostics.add(analysis.getValue().get());
+                projects.add(analysis.getKey());
+            } catch (CancellationException e) {
+                LOGGER.error("Analysis of " + analysis.getKey() + " timed out");
+            } catch (ExecutionException e) {
+                LOGGER.error("Analysis of " + analysis.getKey() + " failed", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.error("Interrupted while waiting on analysis of " + analysis.getKey());
+                return results;
+            }
+        }
+
+        // projects x diagnostics matrix of finding counts
+        String[] diagnostics = QualityModelCache.getDiagnosticTools(qmLocation).keySet().toArray(new String[0]);
+        double[][] findingCounts = new double[projects.size()][diagnostics.length];
+        for (int p = 0; p < projects.size(); p++) {
+            for (int d = 0; d < diagnostics.length; d++) {
+                Diagnostic diagnostic = projectDiagnostics.get(p).get(diagnostics[d]);
+                findingCounts[p][d] = diagnostic == null ? 0.0 : diagnostic.getValue().doubleValue();
+            }
+        }
+        BatchEvaluator.Result scores = RunMetrics.time("evaluation.score.batch",
+            () -> new BatchEvaluator(compiledModel).evaluate(diagnostics, findingCounts));
+        RunMetrics.add("projects.evaluated", projects.size());
+
+        Map<Path, Future<Path>> exports = new LinkedHashMap<>();
+        Project[] exported = new Project[projects.size()];
+        for (int p = 0; p < projects.size(); p++) {
+            int index = p;
+            Path projectDir = projects.get(p);
+            exports.put(projectDir, pool.submit(() -> {
+                Project project = new Project(projectName(projectDir), projectDir, QualityModelCache.getModel(qmLocation));
+                projectDiagnostics.get(index).forEach((diagnosticName, diagnostic) -> {
+                    project.getQualityModel().getDiagnostic(diagnosticName).setChildren(diagnostic.getChildren());
+                    project.getQualityModel().getDiagnostic(diagnosticName).setValue(diagnostic.getValue());
+                });
+                compiledModel.apply(scores.getProjectValues(index), project.getQualityModel());
+                exported[index] = project;
+                Path export = project.exportToJson(resultsDir);
+                // scored on doubles column by column, runEvaluator does not re-score from it
+                recordScoring(export, project.getName(), null);
+                return export;
+            }));
+        }
+        for (Map.Entry<Path, Future<Path>> export : exports.entrySet()) {
+            try {
+                Path outputPath = export.getValue().get();
+                results.put(export.getKey(), outputPath);
+                System.out.println("output: " + outputPath.getFileName());
+                System.out.println();
+            } catch (CancellationException | ExecutionException e) {
+                LOGGER.error("Export of " + export.getKey() + " failed", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.error("Interrupted while waiting on export of " + export.getKey());
+                return results;
+            }
+        }
+        // set once all exports finished, the exports themselves run concurrently
+        for (Project project : exported) {
+            if (project != null) this.project = project;
+        }
+        return results;
     }
 
 
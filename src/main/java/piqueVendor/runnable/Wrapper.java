@@ -29,7 +29,7 @@ public class Wrapper {
         try {
             if (args == null || args.length < 1) {
                 throw new IllegalArgumentException("Incorrect input parameters given. Be sure to include " +
-                    "\n\t(0) The parameter to specify derivation (-d) or evaluation (-e)," +
+                    "\n\t(0) The parameter to specify derivation (-d), evaluation (-e) or the evaluation server (-s)," +
                     "\n\t(1) (optional) Path to config file. See the config.properties file in src/test/resources/config for an example.");
             }
 
@@ -59,6 +59,15 @@ public class Wrapper {
                             new SingleProjectEvaluator();
                         }
 
+                        i++;
+                        break;
+                    case "--serve":
+                    case "-s":
+                        //keep the model loaded and evaluate projects on request, see EvaluationServer
+                        try (EvaluationServer server = new EvaluationServer(args.length > i + 1 ? args[i + 1] : null)) {
+                            server.serve();
+                        }
+
                         i++;
                         break;
                     case "--help":
@@ -69,6 +78,8 @@ public class Wrapper {
                             " to prepare for a model evaluation");
                         System.out.println("Run the jar file with the --evaluate-model (-e) to evaluate a quality model");
                         System.out.println("\t\tModel evaluation involves executing the model on a system under analysis to generate quality scores.");
+                        System.out.println("Run the jar file with the --serve (-s) to keep the model loaded and evaluate projects sent to server.port");
+                        System.out.println("\t\tSend one line per request: EVAL <path>, PING, STATS or SHUTDOWN. See EvaluationServer for the responses.");
                         break;
                     default:
                         System.out.println("System arguments not recognized, try --help or -h");
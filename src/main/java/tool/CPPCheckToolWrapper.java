@@ -24,205 +24,420 @@
 package tool;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
-import java.io.FileWriter;
 import java.io.BufferedWriter;
 import java.lang.Integer;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.Function;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
-import org.apache.commons.io.FilenameUtils;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import org.json.XML;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pique.analysis.ITool;
 import pique.analysis.Tool;
 import pique.model.Diagnostic;
 import pique.model.Finding;
-import pique.model.ModelNode;
-import pique.model.QualityModel;
-import pique.model.QualityModelImport;
 import pique.utility.BigDecimalWithContext;
-import utilities.PiqueProperties;
 import utilities.HelperFunctions;
+import utilities.PiqueConfiguration;
+import utilities.PiqueProperties;
+import utilities.QualityModelCache;
+import utilities.RunMetrics;
+import utilities.ToolResultCache;
 
-public class CPPCheckToolWrapper extends Tool implements ITool  {
+public class CPPCheckToolWrapper extends Tool implements IBatchTool  {
     private static final Logger LOGGER = LoggerFactory.getLogger(CPPCheckToolWrapper.class);
 
+    /** ids of the checks cppcheck runs over all files it was given, instead of over each file */
+    static final Set<String> WHOLE_PROGRAM_CHECKS = new HashSet<>(Arrays.asList("unusedFunction",
+        "ctuOneDefinitionRuleViolation", "ctunullpointer", "ctuuninitvar", "ctuArrayIndex", "ctuPointerArith"));
+
+    private final PiqueConfiguration configuration;
+
     public CPPCheckToolWrapper(Path toolRoot) {
-        super("cppcheck", toolRoot);
+        this(toolRoot, null);
+    }
 
+    /**
+     * @param configuration configuration to run with, null to use the process-wide one of PiqueProperties
+     */
+    public CPPCheckToolWrapper(Path toolRoot, PiqueConfiguration configuration) {
+        super("cppcheck", toolRoot);
+        this.configuration = configuration;
     }
 
     /**
      * @param  projectLocation path to a binary file for the desired solution of project to
      *             analyze
      * @return The path to the analysis results file
+     * @throws UncheckedIOException if the tool could not be run or timed out, its partial output is deleted
      */
     @Override
     public Path analyze(Path projectLocation) {
-        String fileLocation = PiqueProperties.getPropertiesDefault().getProperty("results.directory");
-        if (PiqueProperties.saveBenchmarkResults()){
-            LOGGER.info("logging CPPCheck results to benchmark directory nested under the results directory");
-            fileLocation += "benchmark/";
-        }
-        File toolResults = new File(fileLocation + FilenameUtils.removeExtension(projectLocation.getFileName().toString())+ "--cppcheckOutput.xml");
+        String fileLocation = resultsLocation();
+        File toolResults = new File(fileLocation + projectLocation.getFileName().toString()+ "--cppcheckOutput.xml");
         toolResults.delete();
         toolResults.getParentFile().mkdirs();
 
-        File toolSTDOUT = new File(fileLocation + FilenameUtils.removeExtension(projectLocation.getFileName().toString())+ "--cppcheckSTDOUT.out");
+        File toolSTDOUT = new File(fileLocation + projectLocation.getFileName().toString()+ "--cppcheckSTDOUT.out");
         toolSTDOUT.delete(); // clear out the last output. May want to change this to rename rather than delete.
         toolSTDOUT.getParentFile().mkdirs();
 
-        String[] cmd = {"./"+PiqueProperties.getPropertiesDefault().getProperty("tool.cppcheck.filepath"),
+        File toolSTDERR = new File(fileLocation + projectLocation.getFileName().toString()+ "--cppcheckSTDERR.log");
+
+        String toolPath = configuration().getCppcheckPath().toString();
+        String[] flags = {"--enable=all", "--xml"};
+        String[] cmd = {"./"+toolPath,
             projectLocation.toString(),
-            "--enable=all",
-            "--xml",
+            flags[0],
+            flags[1],
             "--output-file="+toolResults.toString()};
 
+        String cacheKey = cacheKey(Paths.get(toolPath), flags, projectLocation);
+        if (cacheKey != null && ToolResultCache.restore(cacheKey, toolResults)) {
+            LOGGER.info("Reusing cached CPPCheck results for " + projectLocation);
+            return toolResults.toPath();
+        }
+
         LOGGER.info("Built CPPCheck command: " + Arrays.toString(cmd)
             .replace(",", "")  //remove the commas
             .replace("[", "")  //remove the right bracket
             .replace("]", "")  //remove the left bracket
             .trim());           //remove trailing spaces from partially initialized arrays);
 
-        String out = "";
-        try (BufferedWriter writer = Files.newBufferedWriter(toolSTDOUT.toPath())) {
-            out = getOutputFromProgram(cmd,LOGGER);
-            writer.write(out);
+        try {
+            int exitCode = HelperFunctions.runProgram(cmd, toolSTDOUT, toolSTDERR, configuration().getToolTimeoutSeconds());
+            if (exitCode != 0) {
+                LOGGER.warn("CPPCheck exited with code " + exitCode + " on " + projectLocation + ", see " + toolSTDERR);
+            } else if (cacheKey != null) {
+                ToolResultCache.store(cacheKey, toolResults);
+            }
         } catch (IOException e) {
-            e.printStackTrace();
+            // a killed run leaves a truncated report, which would parse as a project without findings
+            toolResults.delete();
+            throw new UncheckedIOException("CPPCheck failed on " + projectLocation, e);
         }
         LOGGER.info("Finished analyzing: " + projectLocation);
         return toolResults.toPath();
     }
 
-     /**
-     * Taken directly from https://stackoverflow.com/questions/13008526/runtime-getruntime-execcmd-hanging
+    /**
+     * Analyzes all projects with one cppcheck run. The files are handed over in a file list, cppcheck checks them
+     * with tool.cppcheck.jobs parallel jobs and keeps its own incremental results in tool.cppcheck.build.directory.
+     * The single xml report is then split into one diagnostic map per project by the file each error was found
+     * checking, see parseBatchAnalysis.
+     *
+     * One run checks all files as a single program, so its whole program checks (unusedFunction and the ctu*
+     * checks) match function calls and definitions across unrelated projects. When the model scores any of them,
+     * either directly or through its "unknown" diagnostic, nothing is batched and every project is analyzed on its
+     * own (see PrefetchingTool.analyzeBatch), so scores never depend on which other projects are evaluated.
      *
-     * @param program - A string as would be passed to Runtime.getRuntime().exec(program)
-     * @return the text output of the command. Includes input and error.
-     * @throws IOException
+     * Errors without a location (e.g. a missing system include reported once per run) belong to no project and are
+     * dropped. Results of a batch run are not stored in the tool result cache, the build directory serves that
+     * purpose.
+     *
+     * @return diagnostics per project, empty if cppcheck failed, produced no report or the model scores whole
+     * program checks
      */
-    public String getOutputFromProgram(String[] program, Logger logger) throws IOException {
-        if(logger!=null) logger.info("Executing: " + String.join(" ", program));
-        Process proc = Runtime.getRuntime().exec(program);
-        return Stream.of(proc.getErrorStream(), proc.getInputStream()).parallel().map((InputStream isForOutput) -> {
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(isForOutput))) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    if(logger!=null) {
-                        logger.debug(line);
-                        System.out.println(line);
-                    }
-                    output.append(line);
-                    output.append("\n");
-                }
-            } catch (IOException e) {
-                logger.error("Failed to get output of execution.");
-                throw new RuntimeException(e);
-            } catch (SecurityException e2){
-                logger.error("Unable to create subprocess from CPPCheck");
-                e2.printStackTrace();
-            }
-            return output;
-        }).collect(Collectors.joining());
-    }
-
-
-
     @Override
-    public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
-        Map<String, Diagnostic> diagnosticsUniverseForTool = initializeDiagnostics();
-        Map<String, Diagnostic> diagnosticsFound = new HashMap<>();
-
-        File input = new File(toolResults.toString()); //in xml file
-        File tempFile = new File("out/cppcheckOutput.json");
+    public Map<Path, Map<String, Diagnostic>> analyzeBatch(List<Path> projects) {
+        if (scoresWholeProgramChecks()) {
+            LOGGER.info("The model scores CPPCheck's whole program checks, analyzing each of the " + projects.size() + " files on its own");
+            return Collections.emptyMap();
+        }
+        String fileLocation = resultsLocation();
+        File fileList = new File(fileLocation + "cppcheck-batch-files.txt");
+        File toolResults = new File(fileLocation + "cppcheck-batch-output.xml");
+        File toolSTDOUT = new File(fileLocation + "cppcheck-batch-STDOUT.out");
+        File toolSTDERR = new File(fileLocation + "cppcheck-batch-STDERR.log");
+        toolResults.delete();
+        toolSTDOUT.delete();
+        toolResults.getParentFile().mkdirs();
 
-        String results = "";
+        int jobs = configuration().getCppcheckJobs();
+        String toolPath = configuration().getCppcheckPath().toString();
+        List<String> cmd = new ArrayList<>(Arrays.asList("./" + toolPath,
+            "--file-list=" + fileList,
+            "-j", String.valueOf(jobs),
+            "--enable=all",
+            "--xml",
+            "--output-file=" + toolResults));
+        Path buildDirectory = configuration().getCppcheckBuildDirectory();
+        // the tool timeout is meant for one file, allow it for every round of jobs
+        long timeoutSeconds = configuration().getToolTimeoutSeconds() * ((projects.size() + jobs - 1) / jobs);
 
+        RunMetrics.Stage stage = RunMetrics.start("tool.cppcheck.batch");
         try {
-            results = HelperFunctions.readFileContent(toolResults);
+            List<String> files = new ArrayList<>();
+            projects.forEach(project -> files.add(project.toAbsolutePath().normalize().toString()));
+            Files.write(fileList.toPath(), files, StandardCharsets.UTF_8);
+            if (buildDirectory != null) {
+                Files.createDirectories(buildDirectory);
+                cmd.add(1, "--cppcheck-build-dir=" + buildDirectory);
+            }
+            LOGGER.info("Built CPPCheck command: " + String.join(" ", cmd) + " (" + projects.size() + " files)");
+            int exitCode = HelperFunctions.runProgram(cmd.toArray(new String[0]), toolSTDOUT, toolSTDERR, timeoutSeconds);
+            if (exitCode != 0) {
+                LOGGER.warn("CPPCheck exited with code " + exitCode + " on " + fileList + ", see " + toolSTDERR);
+            }
         } catch (IOException e) {
-            System.err.println("No results to read.");
-            return diagnosticsUniverseForTool;
+            // leave the projects to be analyzed one at a time instead of parsing a truncated report
+            LOGGER.error("CPPCheck failed on " + fileList + ", analyzing each file on its own", e);
+            toolResults.delete();
+            return Collections.emptyMap();
+        } finally {
+            stage.close();
+        }
+        LOGGER.info("Finished analyzing " + projects.size() + " files");
+        return parseBatchAnalysis(toolResults.toPath(), projects);
+    }
+
+    /**
+     * Splits the report of a batch run into the diagnostics of each project. An error belongs to the file cppcheck
+     * was checking when it found it (file0), which differs from the file of its first location for errors in an
+     * included header. Errors without file0 fall back to the file of their first location.
+     *
+     * @param toolResults path to the xml report of a batch run
+     * @param projects the projects analyzed by the run
+     * @return diagnostics per project, empty if the report could not be read
+     */
+    Map<Path, Map<String, Diagnostic>> parseBatchAnalysis(Path toolResults, List<Path> projects) {
+        // cppcheck reports each file under the path it was given in the file list
+        Map<String, Report> reports = new HashMap<>();
+        Map<Path, Report> projectReports = new LinkedHashMap<>();
+        for (Path project : projects) {
+            Report report = new Report(null);
+            reports.put(project.toAbsolutePath().normalize().toString(), report);
+            projectReports.put(project, report);
         }
 
-        try {
-            //rely on JSON object manipulation instead of xml. So this step is very redundant but it is easier to deal with json than xml.
-            JSONObject jsonResultsObject = XML.toJSONObject(results);
+        Map<String, Report> reportsByReportedName = new HashMap<>();
+        boolean parsed = parseReport(toolResults, file -> reportsByReportedName.computeIfAbsent(file, reportedName -> {
             try {
-                BufferedWriter writer = new BufferedWriter(new FileWriter(tempFile));
-                String jsonResultsString = jsonResultsObject.toString();
-                writer.write(jsonResultsString.substring(jsonResultsString.indexOf('['), jsonResultsString.indexOf("}}}")));
-                writer.close();
-            } catch (IOException e) {
-                System.out.println("Can't make new file");
-                return diagnosticsUniverseForTool;
+                return reports.get(Paths.get(reportedName).toAbsolutePath().normalize().toString());
+            } catch (InvalidPathException e) {
+                return null;
             }
-        } catch (JSONException e) {
-            return diagnosticsUniverseForTool;
+        }));
+        Map<Path, Map<String, Diagnostic>> diagnostics = new LinkedHashMap<>();
+        if (parsed) {
+            projectReports.forEach((project, report) -> diagnostics.put(project, report.finish()));
         }
+        return diagnostics;
+    }
+
+    /**
+     * @return true if a finding of a whole program check would count towards a diagnostic of the model
+     */
+    boolean scoresWholeProgramChecks() {
+        Map<String, Diagnostic> diagnostics = initializeDiagnostics();
+        return diagnostics.containsKey("unknown") || WHOLE_PROGRAM_CHECKS.stream().anyMatch(diagnostics::containsKey);
+    }
 
+    private PiqueConfiguration configuration() {
+        return configuration != null ? configuration : PiqueProperties.getConfiguration();
+    }
+
+    private String resultsLocation() {
+        if (configuration().saveBenchmarkResults()){
+            LOGGER.info("logging CPPCheck results to benchmark directory nested under the results directory");
+        }
+        return configuration().getToolResultsDirectory().toString() + File.separator;
+    }
+
+    private String cacheKey(Path toolPath, String[] flags, Path projectLocation) {
+        if (!ToolResultCache.isEnabled()) return null;
         try {
-            String tempPathString = tempFile.getAbsolutePath();     //TODO: make from properties file
-            Path tempPath = Paths.get(tempPathString);
-            results = HelperFunctions.readFileContent(tempPath);
+            return ToolResultCache.key(getName(), toolPath, flags, projectLocation);
         } catch (IOException e) {
-            System.err.println("No results to read.");
-            return diagnosticsUniverseForTool;
+            LOGGER.warn("Unable to compute the result cache key for " + projectLocation + ", running CPPCheck", e);
+            return null;
         }
+    }
 
-        ArrayList<String> IDList = new ArrayList<>();
-        ArrayList<Integer> severityList = new ArrayList<>();
-
-        try {
+    /**
+     * Streams the cppcheck xml report and turns every &lt;error id=... severity=...&gt; element into a finding
+     * of the matching diagnostic. Only the current element is held in memory, so the size of the report does not matter.
+     *
+     * @param toolResults path to the xml report written by analyze
+     * @return diagnostics that received at least one finding
+     */
+    @Override
+    public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
+        return parseAnalysis(toolResults, null);
+    }
 
-            JSONArray jsonResults = new JSONArray(results);
+    /**
+     * @param toolResults path to the xml report written by analyze
+     * @return every finding of the report indexed by file and line
+     */
+    public FindingIndex indexAnalysis(Path toolResults) {
+        FindingIndex.Builder index = FindingIndex.builder();
+        parseAnalysis(toolResults, index);
+        return index.build();
+    }
 
-            for (int k = 0; k < jsonResults.length(); k++) {
-                JSONObject jsonFinding = (JSONObject) jsonResults.get(k);
+    /**
+     * Same as parseAnalysis, additionally adding every finding to index. A finding is located at the first
+     * &lt;location&gt; of its error and spans the following locations in the same file.
+     *
+     * @param index builder to add the findings to, or null
+     */
+    public Map<String, Diagnostic> parseAnalysis(Path toolResults, FindingIndex.Builder index) {
+        Report report = new Report(index);
+        if (!parseReport(toolResults, file -> report)) {
+            return report.diagnosticsUniverseForTool;
+        }
+        return report.finish();
+    }
 
-                String findingName;
-                String findingSeverity;
-                findingName = jsonFinding.get("id").toString();
-                findingSeverity = jsonFinding.get("severity").toString();
-                severityList.add(severityToInt(findingSeverity));
-                IDList.add(findingName);
+    /**
+     * Streams the report, adding each error to the report its checked file is routed to.
+     *
+     * @param reports the report of the file an error was found checking (file0, else the file of its first
+     *                location), or null to drop the error
+     * @return false if the report could not be read
+     */
+    private boolean parseReport(Path toolResults, Function<String, Report> reports) {
+        long findings = 0;
+        RunMetrics.Stage stage = RunMetrics.start("parse.cppcheck");
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(toolResults))) {
+            RunMetrics.add("bytes.read.cppcheck", Files.size(toolResults));
+            XMLStreamReader reader = newXMLInputFactory().createXMLStreamReader(input);
+            try {
+                String id = null;
+                String severity = null;
+                String checkedFile = null;
+                String file = "";
+                int line = 0;
+                int column = 0;
+                int endLine = 0;
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("error")) {
+                        id = reader.getAttributeValue(null, "id");
+                        severity = reader.getAttributeValue(null, "severity");
+                        checkedFile = reader.getAttributeValue(null, "file0");
+                        file = "";
+                        line = 0;
+                        column = 0;
+                        endLine = 0;
+                    } else if (event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("location") && id != null) {
+                        String locationFile = reader.getAttributeValue(null, "file");
+                        int locationLine = parseInt(reader.getAttributeValue(null, "line"));
+                        if (file.isEmpty() && locationFile != null) {
+                            file = locationFile;
+                            line = locationLine;
+                            column = parseInt(reader.getAttributeValue(null, "column"));
+                            endLine = line;
+                        } else if (file.equals(locationFile)) {
+                            endLine = Math.max(endLine, locationLine);
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("error")) {
+                        Report report = reports.apply(checkedFile != null ? checkedFile : file);
+                        if (report != null) {
+                            findings++;
+                            Finding finding = addFinding(report, id, severity, file, line, column);
+                            if (report.index != null && finding != null) {
+                                report.index.add(finding, endLine);
+                            }
+                        }
+                        id = null;
+                    }
+                }
+            } finally {
+                reader.close();
             }
+        } catch (IOException e) {
+            System.err.println("No results to read.");
+            return false;
+        } catch (XMLStreamException e) {
+            LOGGER.error("Malformed cppcheck results in " + toolResults, e);
+            return false;
+        } finally {
+            stage.close();
+        }
 
-            for (int i = 0; i < IDList.size(); i++) {
+        RunMetrics.add("findings.parsed.cppcheck", findings);
+        return true;
+    }
 
-                Diagnostic diag = diagnosticsUniverseForTool.get((IDList.get(i)));
-                if (diag == null) {
-                    //this means that either it is unknown, mapped to a CWE outside of the expected results, or is not assigned a CWE
-                    //We may want to treat this in another way.
-                    diag = diagnosticsUniverseForTool.get("unknown");
-                    IDList.set(i, "unknown");
-                    severityList.set(i, 0);
-                }
-                Finding finding = new Finding("",0,0,severityList.get(i));
-                finding.setName(IDList.get(i));
-                finding.setValue(new BigDecimalWithContext(1.0));
-                diag.setChild(finding); //Null pointer
-                diag.getValue();
-                diagnosticsFound.put(diag.getName(), diag);
-            }
+    private Finding addFinding(Report report, String findingName, String findingSeverity, String file, int line, int column) {
+        FindingCollector collector = report.collector;
+        int severity = severityToInt(findingSeverity);
+        Diagnostic diag = report.diagnosticsUniverseForTool.get(findingName);
+        if (diag == null) {
+            //this means that either it is unknown, mapped to a CWE outside of the expected results, or is not assigned a CWE
+            //We may want to treat this in another way.
+            diag = report.diagnosticsUniverseForTool.get("unknown");
+            findingName = "unknown";
+            severity = 0;
+        }
+        // the diagnostic's name is the interned rule id, the report's copy of it is dropped
+        findingName = diag.getName().equals(findingName) ? diag.getName() : collector.intern(findingName);
+        file = collector.intern(file);
+        if (!collector.isNew(diag.getName(), findingName, file, line, column)) {
+            return null;
+        }
+        report.diagnosticsFound.put(diag.getName(), diag);
+        if (report.counter != null) {
+            report.counter.count(diag, findingName, severity);
+            return null;
+        }
+        Finding finding = new Finding(file, line, column, severity);
+        finding.setName(findingName);
+        finding.setValue(new BigDecimalWithContext(1.0));
+        diag.setChild(finding); //Null pointer
+        return finding;
+    }
 
+    /**
+     * Diagnostics and findings parsed for one project.
+     */
+    private class Report {
+        private final Map<String, Diagnostic> diagnosticsUniverseForTool = initializeDiagnostics();
+        private final Map<String, Diagnostic> diagnosticsFound = new HashMap<>();
+        private final FindingCollector collector = new FindingCollector(configuration().deduplicateFindings());
+        private final FindingCounter counter;
+        private final FindingIndex.Builder index;
+
+        private Report(FindingIndex.Builder index) {
+            this.index = index;
+            // the findings index needs every finding, counting only applies without one
+            this.counter = index == null && configuration().countFindings() ? new FindingCounter() : null;
+        }
 
-        } catch (JSONException e) {
-            e.printStackTrace();
+        private Map<String, Diagnostic> finish() {
+            if (counter != null) {
+                counter.apply();
+            }
+            // evaluate each diagnostic once, after all of its findings were added
+            diagnosticsFound.values().forEach(Diagnostic::getValue);
+            return diagnosticsFound;
         }
+    }
 
-        return diagnosticsFound;
+    private static int parseInt(String value) {
+        try {
+            return value == null ? 0 : Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static XMLInputFactory newXMLInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        // the report is tool output, never resolve anything it points at
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
     }
 
 
@@ -233,24 +448,8 @@ public class CPPCheckToolWrapper extends Tool implements ITool  {
 
     // Creates and returns a set of CWE diagnostics without findings
     private Map<String, Diagnostic> initializeDiagnostics() {
-        // load the qm structure
-        Properties prop = PiqueProperties.getPropertiesDefault();
-        Path blankqmFilePath = Paths.get(prop.getProperty("blankqm.filepath"));
-        QualityModelImport qmImport = new QualityModelImport(blankqmFilePath);
-        QualityModel qmDescription = qmImport.importQualityModel();
-
-        Map<String, Diagnostic> diagnostics = new HashMap<>();
-
-        // for each diagnostic in the model, if it is associated with this tool,
-        // add it to the list of diagnostics
-        for (ModelNode x : qmDescription.getDiagnostics().values()) {
-            Diagnostic diag = (Diagnostic) x;
-            if (diag.getToolName().equals("cppcheck") || diag.getToolName().equals("flawfinder")) {
-                diagnostics.put(diag.getName(),diag);
-            }
-        }
-
-        return diagnostics;
+        // copies of the diagnostics associated with this tool, the qm structure itself is only loaded once per JVM
+        return QualityModelCache.getDiagnostics(configuration().getBlankModel(), "cppcheck", "flawfinder");
     }
 
     private Integer severityToInt(String severity) {
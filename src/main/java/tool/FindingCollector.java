@@ -0,0 +1,118 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import pique.model.Diagnostic;
+import pique.model.ModelNode;
+
+/**
+ * Interns the strings findings keep (rule ids, file paths) and, with findings.deduplicate=true, drops findings
+ * of a report that were already collected from it: same diagnostic, rule, file, line and column. Duplicates are
+ * detected before the Finding is allocated, so a rule that fires thousands of times on the same location costs
+ * one Finding. Deduplicating keeps one key per distinct finding until the report is parsed.
+ *
+ * One collector is used per parsed report, only by the thread parsing it, so it is not thread safe. Findings of
+ * different tools are not deduplicated, the tools report under their own diagnostics and rule ids, so the same
+ * defect found by two tools can not be told apart from two defects. Their diagnostics are combined with merge.
+ */
+public class FindingCollector {
+
+    private final boolean deduplicate;
+    private final Map<String, String> strings = new HashMap<>();
+    private final Set<Key> collected = new HashSet<>();
+
+    public FindingCollector(boolean deduplicate) {
+        this.deduplicate = deduplicate;
+    }
+
+    /**
+     * @return the instance of value this collector already holds, or value itself the first time it is seen
+     */
+    public String intern(String value) {
+        if (value == null) return null;
+        String interned = strings.putIfAbsent(value, value);
+        return interned == null ? value : interned;
+    }
+
+    /**
+     * @return false if deduplicating and an identical finding was collected before, true otherwise
+     */
+    public boolean isNew(String diagnostic, String rule, String file, int line, int column) {
+        return !deduplicate || collected.add(new Key(diagnostic, rule, file, line, column));
+    }
+
+    /**
+     * Adds the diagnostics of one report to those of another. Diagnostics missing from target are copied over,
+     * findings of diagnostics present in both are added to target's.
+     *
+     * @param target diagnostics collected so far, modified
+     * @param source diagnostics of another tool
+     */
+    public static void merge(Map<String, Diagnostic> target, Map<String, Diagnostic> source) {
+        for (Map.Entry<String, Diagnostic> entry : source.entrySet()) {
+            Diagnostic existing = target.putIfAbsent(entry.getKey(), entry.getValue());
+            if (existing != null) {
+                for (ModelNode child : entry.getValue().getChildren().values()) {
+                    existing.setChild(child);
+                }
+            }
+        }
+    }
+
+    private static final class Key {
+        private final String diagnostic;
+        private final String rule;
+        private final String file;
+        private final int line;
+        private final int column;
+
+        private Key(String diagnostic, String rule, String file, int line, int column) {
+            this.diagnostic = diagnostic;
+            this.rule = rule;
+            this.file = file;
+            this.line = line;
+            this.column = column;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return line == key.line && column == key.column && Objects.equals(diagnostic, key.diagnostic)
+                && Objects.equals(rule, key.rule) && Objects.equals(file, key.file);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(diagnostic, rule, file, line, column);
+        }
+    }
+}
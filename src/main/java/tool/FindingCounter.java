@@ -0,0 +1,89 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import pique.model.Diagnostic;
+import pique.model.Finding;
+import pique.utility.BigDecimalWithContext;
+
+/**
+ * Counts findings per diagnostic and rule instead of keeping one Finding per occurrence, so parsing a report
+ * takes memory in the number of diagnostics rather than the number of findings.
+ *
+ * Once the report is parsed, apply gives each diagnostic one Finding per rule whose value is the number of
+ * occurrences and whose severity is the highest one seen. The diagnostic's value, the sum of its findings'
+ * values, is then the number of findings the tool reported. The file and line of each occurrence are not kept,
+ * the aggregate findings have no location.
+ */
+public class FindingCounter {
+
+    // flawfinder levels go up to 5, cppcheck severities to 4
+    private static final int MAX_SEVERITY = 5;
+
+    private final Map<String, Diagnostic> diagnostics = new LinkedHashMap<>();
+    private final Map<String, Map<String, int[]>> histograms = new HashMap<>();
+
+    /**
+     * Counts one occurrence of rule in diag.
+     */
+    public void count(Diagnostic diag, String rule, int severity) {
+        diagnostics.putIfAbsent(diag.getName(), diag);
+        int[] histogram = histograms.computeIfAbsent(diag.getName(), k -> new HashMap<>())
+            .computeIfAbsent(rule, k -> new int[MAX_SEVERITY + 1]);
+        histogram[Math.max(0, Math.min(MAX_SEVERITY, severity))]++;
+    }
+
+    /**
+     * @return number of findings of rule counted for the diagnostic, per severity (index 0 to 5)
+     */
+    public int[] getSeverityHistogram(String diagnostic, String rule) {
+        int[] histogram = histograms.getOrDefault(diagnostic, new HashMap<>()).get(rule);
+        return histogram == null ? new int[MAX_SEVERITY + 1] : histogram.clone();
+    }
+
+    /**
+     * Adds one aggregate Finding per counted rule to its diagnostic.
+     */
+    public void apply() {
+        histograms.forEach((diagnostic, rules) -> {
+            Diagnostic diag = diagnostics.get(diagnostic);
+            rules.forEach((rule, histogram) -> {
+                int count = 0;
+                int severity = 0;
+                for (int s = 0; s < histogram.length; s++) {
+                    count += histogram[s];
+                    if (histogram[s] > 0) severity = s;
+                }
+                Finding finding = new Finding("", 0, 0, severity);
+                finding.setName(rule);
+                finding.setValue(new BigDecimalWithContext(count));
+                diag.setChild(finding);
+            });
+        });
+    }
+}
@@ -0,0 +1,199 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import pique.model.Finding;
+
+/**
+ * Findings of one or more tool reports indexed by source file and line, so the findings in a range of lines
+ * (e.g. the functions touched by a patch) are found without walking the whole report.
+ *
+ * Every finding covers the lines from its reported location to the last line its tool pointed at in the same
+ * file (cppcheck reports a trace of locations for some errors). Per file the findings are kept in arrays sorted
+ * by first line, read as an implicit interval tree: each subtree records the last line any of its findings reaches,
+ * so a query skips every subtree that ends before the range or starts after it. A query costs O(log n) plus
+ * O(log n) per finding returned, however many lines other findings of the file span.
+ *
+ * Built with a Builder while parsing, immutable afterwards.
+ */
+public class FindingIndex {
+
+    private final Map<String, FileFindings> files;
+
+    private FindingIndex(Map<String, FileFindings> files) {
+        this.files = Collections.unmodifiableMap(files);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @param file source file as reported by the tool, compared after normalizing the path
+     * @param fromLine first line of the range, inclusive
+     * @param toLine last line of the range, inclusive
+     * @return findings overlapping the lines, ordered by line
+     */
+    public List<Finding> findings(String file, int fromLine, int toLine) {
+        FileFindings fileFindings = files.get(normalize(file));
+        if (fileFindings == null || fromLine > toLine) {
+            return Collections.emptyList();
+        }
+        return fileFindings.overlapping(fromLine, toLine);
+    }
+
+    /**
+     * @return all findings of a file, ordered by line
+     */
+    public List<Finding> findings(String file) {
+        return findings(file, Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return the normalized paths of all files with findings
+     */
+    public Set<String> getFiles() {
+        return files.keySet();
+    }
+
+    public int size() {
+        int size = 0;
+        for (FileFindings fileFindings : files.values()) {
+            size += fileFindings.findings.length;
+        }
+        return size;
+    }
+
+    private static String normalize(String file) {
+        try {
+            return Paths.get(file).normalize().toString();
+        } catch (RuntimeException e) {
+            // not a valid path on this platform, index it as reported
+            return file;
+        }
+    }
+
+    private static class FileFindings {
+        private final int[] startLines;
+        private final int[] endLines;
+        private final Finding[] findings;
+        // last line reached by the findings of the subtree rooted at each index, see maxEnd
+        private final int[] subtreeEndLines;
+
+        private FileFindings(List<int[]> lines, List<Finding> unsorted) {
+            Integer[] order = new Integer[unsorted.size()];
+            for (int i = 0; i < order.length; i++) order[i] = i;
+            Arrays.sort(order, (a, b) -> Integer.compare(lines.get(a)[0], lines.get(b)[0]));
+
+            startLines = new int[order.length];
+            endLines = new int[order.length];
+            findings = new Finding[order.length];
+            for (int i = 0; i < order.length; i++) {
+                startLines[i] = lines.get(order[i])[0];
+                endLines[i] = lines.get(order[i])[1];
+                findings[i] = unsorted.get(order[i]);
+            }
+            subtreeEndLines = new int[order.length];
+            maxEnd(0, order.length);
+        }
+
+        /**
+         * The subtree of the indexes low (inclusive) to high (exclusive) is rooted at their middle index, its
+         * children are the subtrees of the indexes before and after it.
+         *
+         * @return last line reached by the findings of the subtree
+         */
+        private int maxEnd(int low, int high) {
+            if (low >= high) return Integer.MIN_VALUE;
+            int mid = (low + high) >>> 1;
+            subtreeEndLines[mid] = Math.max(endLines[mid], Math.max(maxEnd(low, mid), maxEnd(mid + 1, high)));
+            return subtreeEndLines[mid];
+        }
+
+        private List<Finding> overlapping(int fromLine, int toLine) {
+            List<Finding> result = new ArrayList<>();
+            collect(0, startLines.length, fromLine, toLine, result);
+            return result;
+        }
+
+        /**
+         * Adds the findings of the subtree that overlap the lines, in order of their first line.
+         */
+        private void collect(int low, int high, int fromLine, int toLine, List<Finding> result) {
+            if (low >= high) return;
+            int mid = (low + high) >>> 1;
+            if (subtreeEndLines[mid] < fromLine) return; // every finding of the subtree ends before the range
+            collect(low, mid, fromLine, toLine, result);
+            if (startLines[mid] > toLine) return; // mid and the findings after it start after the range
+            if (endLines[mid] >= fromLine) {
+                result.add(findings[mid]);
+            }
+            collect(mid + 1, high, fromLine, toLine, result);
+        }
+    }
+
+    /**
+     * Collects findings while a report is parsed. Not thread safe, use one builder per report.
+     */
+    public static class Builder {
+        private final Map<String, List<int[]>> lines = new HashMap<>();
+        private final Map<String, List<Finding>> findings = new HashMap<>();
+
+        /**
+         * Adds a finding at its own file and line.
+         */
+        public Builder add(Finding finding) {
+            return add(finding, finding.getLineNumber());
+        }
+
+        /**
+         * @param finding finding with its file and first line
+         * @param endLine last line of the finding's file the tool pointed at, at least the finding's line
+         */
+        public Builder add(Finding finding, int endLine) {
+            String file = normalize(finding.getFilePath());
+            lines.computeIfAbsent(file, k -> new ArrayList<>())
+                .add(new int[]{finding.getLineNumber(), Math.max(endLine, finding.getLineNumber())});
+            findings.computeIfAbsent(file, k -> new ArrayList<>()).add(finding);
+            return this;
+        }
+
+        public FindingIndex build() {
+            Map<String, FileFindings> files = new HashMap<>();
+            for (Map.Entry<String, List<Finding>> file : findings.entrySet()) {
+                files.put(file.getKey(), new FileFindings(lines.get(file.getKey()), file.getValue()));
+            }
+            return new FindingIndex(files);
+        }
+    }
+}
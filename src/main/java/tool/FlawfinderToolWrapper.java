@@ -25,23 +25,22 @@ package tool;
 
 import java.io.*;
 import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.lang.Integer;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 
 
-import org.apache.commons.io.FileUtils;
-import org.apache.commons.io.FilenameUtils;
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -49,19 +48,33 @@ import pique.analysis.ITool;
 import pique.analysis.Tool;
 import pique.model.Diagnostic;
 import pique.model.Finding;
-import pique.model.ModelNode;
-import pique.model.QualityModel;
-import pique.model.QualityModelImport;
 import pique.utility.BigDecimalWithContext;
-import utilities.PiqueProperties;
 import utilities.HelperFunctions;
+import utilities.PiqueConfiguration;
+import utilities.PiqueProperties;
+import utilities.QualityModelCache;
+import utilities.RunMetrics;
+import utilities.ToolResultCache;
+import utilities.WorkerPool;
 
 
-public class FlawfinderToolWrapper extends Tool implements ITool  {
+public class FlawfinderToolWrapper extends Tool implements IBatchTool  {
 	private static final Logger LOGGER = LoggerFactory.getLogger(FlawfinderToolWrapper.class);
 
+	private static final int MAX_BATCH_ARGUMENTS_LENGTH = 24000;
+
+	private final PiqueConfiguration configuration;
+
 	public FlawfinderToolWrapper(Path toolRoot) {
+		this(toolRoot, null);
+	}
+
+	/**
+	 * @param configuration configuration to run with, null to use the process-wide one of PiqueProperties
+	 */
+	public FlawfinderToolWrapper(Path toolRoot, PiqueConfiguration configuration) {
 		super("flawfinder", toolRoot);
+		this.configuration = configuration;
 	}
 
 	// Methods
@@ -69,22 +82,20 @@ public class FlawfinderToolWrapper extends Tool implements ITool  {
 	 * @param projectLocation The path to a binary file for the desired solution of project to
 	 *             analyze
 	 * @return The path to the analysis results file
+	 * @throws UncheckedIOException if the tool could not be run or timed out, its partial output is deleted
 	 */
 	@Override
 	public Path analyze(Path projectLocation) {
-		String fileLocation = PiqueProperties.getPropertiesDefault().getProperty("results.directory");
-
-		if (PiqueProperties.saveBenchmarkResults()){
-			LOGGER.info("logging flawfinder results to benchmark directory nested under the results directory");
-			fileLocation += "benchmark/";
-		}
-		File toolResults = new File(fileLocation + FilenameUtils.removeExtension(projectLocation.getFileName().toString())+ "--flawfinderOutput.csv");
+		String fileLocation = resultsLocation();
+		File toolResults = new File(fileLocation + projectLocation.getFileName().toString()+ "--flawfinderOutput.csv");
 		toolResults.delete();
 		toolResults.getParentFile().mkdirs();
 
+		String toolPath = configuration().getFlawfinderPath().toString();
+		String[] flags = {"--csv"};
 		String[] cmd = {"python",
-			PiqueProperties.getPropertiesDefault().getProperty("tool.flawfinder.filepath"),
-			"--csv",
+			toolPath,
+			flags[0],
 			projectLocation.toString()};
 
 		LOGGER.info("Built flawfinder command: " + Arrays.toString(cmd)
@@ -93,150 +104,342 @@ public class FlawfinderToolWrapper extends Tool implements ITool  {
 			.replace("]", "")  //remove the left bracket
 			.trim());           //remove trailing spaces from partially initialized arrays);
 
-		String out = "";
-		try (BufferedWriter writer = Files.newBufferedWriter(toolResults.toPath())) {
+		String cacheKey = cacheKey(Paths.get(toolPath), flags, projectLocation);
+		if (cacheKey != null && ToolResultCache.restore(cacheKey, toolResults)) {
+			LOGGER.info("Reusing cached flawfinder results for " + projectLocation);
+			return toolResults.toPath();
+		}
+
+		File toolSTDERR = new File(fileLocation + projectLocation.getFileName().toString()+ "--flawfinderSTDERR.log");
+
+		try {
 			/*
 			flawfinder is weird... When you specify flawfinder an output format it spits that output to STDOUT, no to a file.
-			It is intended to be used with redirect operators (">"), but those don't work in java, so I am relying on calling
-			the redirectoutput method of Process.
-			So, instead of catching errors in a separate output stream, all output is sent to one file. That is why there is only one output file.
+			It is intended to be used with redirect operators (">"), so the process' STDOUT is redirected straight into the
+			results file and STDERR into its own log, keeping error messages out of the csv.
 			 */
-			out = getOutputFromProgram(cmd, LOGGER);
-			writer.write(out);
+			int exitCode = HelperFunctions.runProgram(cmd, toolResults, toolSTDERR, configuration().getToolTimeoutSeconds());
+			if (exitCode != 0) {
+				LOGGER.warn("flawfinder exited with code " + exitCode + " on " + projectLocation + ", see " + toolSTDERR);
+			} else if (cacheKey != null) {
+				ToolResultCache.store(cacheKey, toolResults);
+			}
 		} catch (IOException e) {
-			e.printStackTrace();
+			// flawfinder writes its csv at the end, a killed run leaves none or part of it
+			toolResults.delete();
+			throw new UncheckedIOException("flawfinder failed on " + projectLocation, e);
 		}
 		LOGGER.info("Finished analyzing: " + projectLocation);
 		return toolResults.toPath();
 	}
 
-	public String getOutputFromProgram(String[] program, Logger logger) throws IOException {
-		if(logger!=null) logger.info("Executing: " + String.join(" ", program));
-		Process proc = Runtime.getRuntime().exec(program);
-		return Stream.of(proc.getErrorStream(), proc.getInputStream()).parallel().map((InputStream isForOutput) -> {
-			StringBuilder output = new StringBuilder();
-			try (BufferedReader br = new BufferedReader(new InputStreamReader(isForOutput))) {
-				String line;
-				while ((line = br.readLine()) != null) {
-					if(logger!=null) {
-						logger.debug(line);
-						System.out.println(line);
+	/**
+	 * Analyzes the projects with as few flawfinder runs as the command line length allows, each run scanning a
+	 * chunk of the files. The csv of each run is split into one diagnostic map per project by its File column.
+	 *
+	 * flawfinder sorts its hits by level, file, line, column and name, so the rows of one file come in the same order
+	 * as in a run on that file alone and the row selection of parseAnalysis applies per file unchanged. Results of a
+	 * batch run are not stored in the tool result cache.
+	 *
+	 * @return diagnostics per project, missing for projects whose chunk produced no readable report
+	 */
+	@Override
+	public Map<Path, Map<String, Diagnostic>> analyzeBatch(List<Path> projects) {
+		String fileLocation = resultsLocation();
+		String toolPath = configuration().getFlawfinderPath().toString();
+
+		// keep every command line well below the Windows limit of 32767 characters
+		List<List<Path>> chunks = new ArrayList<>();
+		List<Path> chunk = new ArrayList<>();
+		int chunkLength = 0;
+		for (Path project : projects) {
+			int length = project.toAbsolutePath().normalize().toString().length() + 3;
+			if (!chunk.isEmpty() && chunkLength + length > MAX_BATCH_ARGUMENTS_LENGTH) {
+				chunks.add(chunk);
+				chunk = new ArrayList<>();
+				chunkLength = 0;
+			}
+			chunk.add(project);
+			chunkLength += length;
+		}
+		if (!chunk.isEmpty()) {
+			chunks.add(chunk);
+		}
+
+		Map<Path, Map<String, Diagnostic>> diagnostics = new HashMap<>();
+		List<Future<Map<Path, Map<String, Diagnostic>>>> runs = new ArrayList<>();
+		RunMetrics.Stage stage = RunMetrics.start("tool.flawfinder.batch");
+		// ProcessScheduler caps the flawfinder processes alive at once, more threads would only wait on it
+		try (WorkerPool pool = new WorkerPool(Math.min(chunks.size(), configuration().getMaxToolProcesses()), 0, "flawfinder")) {
+			for (int i = 0; i < chunks.size(); i++) {
+				int index = i;
+				runs.add(pool.submit(() -> analyzeChunk(index, chunks.get(index), fileLocation, toolPath)));
+			}
+			try {
+				for (int i = 0; i < runs.size(); i++) {
+					try {
+						diagnostics.putAll(runs.get(i).get());
+					} catch (ExecutionException e) {
+						LOGGER.error("flawfinder failed on " + chunks.get(i).size() + " files", e.getCause());
 					}
-					output.append(line);
-					output.append("\n");
 				}
-			} catch (IOException e) {
-				logger.error("Failed to get output of execution.");
-				throw new RuntimeException(e);
-			} catch (SecurityException e2){
-				logger.error("Unable to create subprocess from CPPCheck");
-				e2.printStackTrace();
+			} catch (InterruptedException e) {
+				// stop the remaining chunks before the pool waits on them
+				runs.forEach(run -> run.cancel(true));
+				Thread.currentThread().interrupt();
+				LOGGER.error("Interrupted while analyzing " + projects.size() + " files with flawfinder");
 			}
-			return output;
-		}).collect(Collectors.joining());
+		} finally {
+			stage.close();
+		}
+		LOGGER.info("Finished analyzing " + projects.size() + " files");
+		return diagnostics;
 	}
 
-	@Override
-	public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
-		Map<String, Diagnostic> diagnosticsUniverseForTool = initializeDiagnostics();
-		Map<String, Diagnostic> diagnosticsFound = new HashMap<>();
-
-		//need to clean csv output (remove extra lines)
-		File input = cleanCSV(toolResults.toFile());
-
-		//Adapted from: https://kalliphant.com/jackson-convert-csv-json-example/
-		File output = new File(System.getProperty("user.dir") + "/out/flawfinderOutput.json");
-		CsvSchema csvSchema = CsvSchema.builder().setUseHeader(true).build();
-		CsvMapper csvMapper = new CsvMapper();
-		List <Object> readAll = returnCsvReadList(csvSchema, csvMapper, input);
-		ObjectMapper mapper = new ObjectMapper();
-		returnJSONFile(mapper, output, readAll);
+	/**
+	 * Runs flawfinder on one chunk of a batch.
+	 *
+	 * @return diagnostics per project of the chunk, empty if flawfinder failed
+	 */
+	private Map<Path, Map<String, Diagnostic>> analyzeChunk(int index, List<Path> chunk, String fileLocation, String toolPath) {
+		File toolResults = new File(fileLocation + "flawfinder-batch-" + index + "-output.csv");
+		File toolSTDERR = new File(fileLocation + "flawfinder-batch-" + index + "-STDERR.log");
+		toolResults.delete();
+		toolResults.getParentFile().mkdirs();
 
-		String results = "";
-		Path pathToResults = Paths.get(System.getProperty("user.dir") + "/out/flawfinderOutput.json");
+		List<String> cmd = new ArrayList<>(Arrays.asList("python", toolPath, "--csv"));
+		chunk.forEach(project -> cmd.add(project.toAbsolutePath().normalize().toString()));
+		LOGGER.info("Built flawfinder command for " + chunk.size() + " files, results in " + toolResults);
 
 		try {
-			results = HelperFunctions.readFileContent(pathToResults);
-
+			int exitCode = HelperFunctions.runProgram(cmd.toArray(new String[0]), toolResults, toolSTDERR,
+				configuration().getToolTimeoutSeconds() * chunk.size());
+			if (exitCode != 0) {
+				LOGGER.warn("flawfinder exited with code " + exitCode + ", see " + toolSTDERR);
+			}
 		} catch (IOException e) {
-			System.err.println("No results to read.");
-			return diagnosticsUniverseForTool;
+			LOGGER.error("flawfinder failed on " + chunk.size() + " files, analyzing each of them on its own", e);
+			toolResults.delete();
+			return new HashMap<>();
 		}
+		return parseBatchAnalysis(toolResults.toPath(), chunk);
+	}
 
-		ArrayList<String> ruleIDList = new ArrayList<String>();
-		ArrayList<Integer> severityList = new ArrayList<Integer>();
+	/**
+	 * Splits the report of a batch run into the diagnostics of each project by its File column.
+	 *
+	 * @param toolResults path to the csv report of a batch run
+	 * @param projects the projects analyzed by the run
+	 * @return diagnostics per project, empty if the report could not be read
+	 */
+	Map<Path, Map<String, Diagnostic>> parseBatchAnalysis(Path toolResults, List<Path> projects) {
+		// flawfinder reports each file under the path it was given on the command line
+		Map<String, Report> reports = new HashMap<>();
+		Map<Path, Report> projectReports = new LinkedHashMap<>();
+		for (Path project : projects) {
+			Report report = new Report(null);
+			reports.put(project.toAbsolutePath().normalize().toString(), report);
+			projectReports.put(project, report);
+		}
 
-		try {
-			JSONArray jsonResults = new JSONArray(results);
-
-			for (int k = 1; k < jsonResults.length(); k += 2) {
-				JSONObject jsonFinding = (JSONObject) jsonResults.get(k);
-				String findingName = jsonFinding.get("RuleId").toString();
-				String findingSeverity = jsonFinding.get("DefaultLevel").toString();
-				severityList.add(this.severityToInt(findingSeverity));
-				ruleIDList.add(findingName);
+		Map<String, Report> reportsByReportedName = new HashMap<>();
+		boolean parsed = parseReport(toolResults, file -> reportsByReportedName.computeIfAbsent(file, reportedName -> {
+			try {
+				return reports.get(Paths.get(reportedName).toAbsolutePath().normalize().toString());
+			} catch (InvalidPathException e) {
+				return null;
 			}
+		}));
+		Map<Path, Map<String, Diagnostic>> diagnostics = new LinkedHashMap<>();
+		if (parsed) {
+			projectReports.forEach((project, report) -> diagnostics.put(project, report.finish()));
+		}
+		return diagnostics;
+	}
 
-			for (int i = 0; i < ruleIDList.size(); i++) {
+	private PiqueConfiguration configuration() {
+		return configuration != null ? configuration : PiqueProperties.getConfiguration();
+	}
 
+	private String resultsLocation() {
+		if (configuration().saveBenchmarkResults()){
+			LOGGER.info("logging flawfinder results to benchmark directory nested under the results directory");
+		}
+		return configuration().getToolResultsDirectory().toString() + File.separator;
+	}
 
-				Diagnostic diag = diagnosticsUniverseForTool.get((ruleIDList.get(i)));
-				if (diag == null) {
-					//this means that either it is unknown, mapped to a CWE outside of the expected results, or is not assigned a CWE
-					//We may want to treat this in another way.
-					diag = diagnosticsUniverseForTool.get("CVE-CWE-Unknown-Other");
-				}
-				Finding finding = new Finding("",0,0, severityList.get(i));
-				finding.setName(ruleIDList.get(i));
-				finding.setValue(new BigDecimalWithContext(1.0));
-				diag.setChild(finding);
-				diag.getValue();
-				diagnosticsFound.put(diag.getName(), diag);
-			}
+	private String cacheKey(Path toolPath, String[] flags, Path projectLocation) {
+		if (!ToolResultCache.isEnabled()) return null;
+		try {
+			return ToolResultCache.key(getName(), toolPath, flags, projectLocation);
+		} catch (IOException e) {
+			LOGGER.warn("Unable to compute the result cache key for " + projectLocation + ", running flawfinder", e);
+			return null;
+		}
+	}
 
+	/**
+	 * Streams the flawfinder csv report one row at a time, skipping the blank lines flawfinder leaves
+	 * between rows, and adds a finding to the matching diagnostic for each scored row.
+	 *
+	 * @param toolResults path to the csv report written by analyze
+	 * @return diagnostics that received at least one finding
+	 */
+	@Override
+	public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
+		return parseAnalysis(toolResults, null);
+	}
 
-		} catch (JSONException e) {
-			e.printStackTrace();
-		}
+	/**
+	 * @param toolResults path to the csv report written by analyze
+	 * @return every finding of the report indexed by file and line, including the rows parseAnalysis does not score
+	 */
+	public FindingIndex indexAnalysis(Path toolResults) {
+		FindingIndex.Builder index = FindingIndex.builder();
+		parseAnalysis(toolResults, index);
+		return index.build();
+	}
 
-		return diagnosticsFound;
+	/**
+	 * Same as parseAnalysis, additionally adding the finding of every row to index at its File, Line and Column.
+	 * The returned diagnostics still only hold the scored rows.
+	 *
+	 * @param index builder to add the findings to, or null
+	 */
+	public Map<String, Diagnostic> parseAnalysis(Path toolResults, FindingIndex.Builder index) {
+		Report report = new Report(index);
+		parseReport(toolResults, file -> report);
+		return report.finish();
 	}
 
-	private File cleanCSV(File toolResults){
-		//https://stackoverflow.com/questions/34999999/java-how-to-remove-blank-lines-from-a-text-file
-		try {
-			List<String> lines = FileUtils.readLines(toolResults);
-			Iterator<String> i = lines.iterator();
-			while (i.hasNext()) {
-				String line = i.next();
-				if (line.isEmpty()) {
-					i.remove();
+	/**
+	 * Streams the report, adding each row to the report its File is routed to.
+	 *
+	 * @param reports the report a row's file belongs to, or null to drop the row
+	 * @return false if the report could not be read
+	 */
+	private boolean parseReport(Path toolResults, Function<String, Report> reports) {
+		long findings = 0;
+		CsvMapper csvMapper = new CsvMapper();
+		csvMapper.enable(CsvParser.Feature.SKIP_EMPTY_LINES);
+		CsvSchema csvSchema = CsvSchema.emptySchema().withHeader();
+
+		RunMetrics.Stage stage = RunMetrics.start("parse.flawfinder");
+		try (MappingIterator<Map<String, String>> rows = csvMapper.readerFor(Map.class).with(csvSchema).readValues(toolResults.toFile())) {
+			RunMetrics.add("bytes.read.flawfinder", Files.size(toolResults));
+			while (rows.hasNext()) {
+				Map<String, String> row = rows.next();
+				String file = row.getOrDefault("File", "");
+				Report report = reports.apply(file);
+				if (report == null) {
+					continue;
+				}
+				// Only every second row is scored, starting with the second one. This is the row selection the
+				// previous csv -> json -> JSONArray walk made (k = 1; k += 2) and is kept so scores do not change.
+				// The findings index locates every row, scored or not.
+				if (report.rows++ % 2 == 0) {
+					if (report.index != null) {
+						indexFinding(report, row.get("RuleId"), row.get("DefaultLevel"),
+							file, parseInt(row.get("Line")), parseInt(row.get("Column")));
+					}
+					continue;
+				}
+				findings++;
+				Finding finding = addFinding(report, row.get("RuleId"), row.get("DefaultLevel"),
+					file, parseInt(row.get("Line")), parseInt(row.get("Column")));
+				if (report.index != null && finding != null) {
+					report.index.add(finding);
 				}
 			}
-			FileUtils.writeLines(toolResults, lines);
+		} catch (IOException | RuntimeJsonMappingException e) {
+			LOGGER.error("Unable to read flawfinder results in " + toolResults, e);
+			RunMetrics.add("findings.parsed.flawfinder", findings);
+			return false;
+		} finally {
+			stage.close();
 		}
-		catch (IOException e) {
-			e.printStackTrace();
+
+		RunMetrics.add("findings.parsed.flawfinder", findings);
+		return true;
+	}
+
+	private Finding addFinding(Report report, String findingName, String findingSeverity, String file, int line, int column) {
+		FindingCollector collector = report.collector;
+		Diagnostic diag = report.diagnosticsUniverseForTool.get(findingName);
+		if (diag == null) {
+			//this means that either it is unknown, mapped to a CWE outside of the expected results, or is not assigned a CWE
+			//We may want to treat this in another way.
+			diag = report.diagnosticsUniverseForTool.get("CVE-CWE-Unknown-Other");
 		}
-		return toolResults;
+		// the diagnostic's name is the interned rule id, the report's copy of it is dropped
+		findingName = diag.getName().equals(findingName) ? diag.getName() : collector.intern(findingName);
+		file = collector.intern(file);
+		if (!collector.isNew(diag.getName(), findingName, file, line, column)) {
+			return null;
+		}
+		report.diagnosticsFound.put(diag.getName(), diag);
+		if (report.counter != null) {
+			report.counter.count(diag, findingName, this.severityToInt(findingSeverity));
+			return null;
+		}
+		Finding finding = newFinding(findingName, findingSeverity, file, line, column);
+		diag.setChild(finding);
+		return finding;
 	}
 
-	public List<Object> returnCsvReadList(CsvSchema csvSchema, CsvMapper csvMapper, File input) {
-		List<Object> readAll = null;
-		try {
-			readAll = csvMapper.readerFor(Map.class).with(csvSchema).readValues(input).readAll();
-			return readAll;
-		} catch (IOException e) {
-			e.printStackTrace();
+	/**
+	 * Adds the finding of a row parseAnalysis does not score to the findings index only. These rows are
+	 * deduplicated among themselves, apart from the scored ones.
+	 */
+	private void indexFinding(Report report, String findingName, String findingSeverity, String file, int line, int column) {
+		findingName = report.indexCollector.intern(findingName);
+		file = report.indexCollector.intern(file);
+		if (report.indexCollector.isNew(findingName, findingName, file, line, column)) {
+			report.index.add(newFinding(findingName, findingSeverity, file, line, column));
+		}
+	}
+
+	private Finding newFinding(String findingName, String findingSeverity, String file, int line, int column) {
+		Finding finding = new Finding(file, line, column, this.severityToInt(findingSeverity));
+		finding.setName(findingName);
+		finding.setValue(new BigDecimalWithContext(1.0));
+		return finding;
+	}
+
+	/**
+	 * Diagnostics and findings parsed for one project.
+	 */
+	private class Report {
+		private final Map<String, Diagnostic> diagnosticsUniverseForTool = initializeDiagnostics();
+		private final Map<String, Diagnostic> diagnosticsFound = new HashMap<>();
+		private final FindingCollector collector = new FindingCollector(configuration().deduplicateFindings());
+		private final FindingCounter counter;
+		private final FindingIndex.Builder index;
+		private final FindingCollector indexCollector;
+		private int rows;
+
+		private Report(FindingIndex.Builder index) {
+			this.index = index;
+			this.indexCollector = index == null ? null : new FindingCollector(configuration().deduplicateFindings());
+			// the findings index needs every finding, counting only applies without one
+			this.counter = index == null && configuration().countFindings() ? new FindingCounter() : null;
+		}
+
+		private Map<String, Diagnostic> finish() {
+			if (counter != null) {
+				counter.apply();
+			}
+			// evaluate each diagnostic once, after all of its findings were added
+			diagnosticsFound.values().forEach(Diagnostic::getValue);
+			return diagnosticsFound;
 		}
-		return readAll;
 	}
 
-	public void returnJSONFile(ObjectMapper mapper, File output, List<Object> readAll) {
+	private static int parseInt(String value) {
 		try {
-			mapper.writerWithDefaultPrettyPrinter().writeValue(output, readAll);
-		} catch (IOException e) {
-			e.printStackTrace();
+			return value == null ? 0 : Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return 0;
 		}
 	}
 
@@ -247,24 +450,8 @@ public class FlawfinderToolWrapper extends Tool implements ITool  {
 
 	// Creates and returns a set of CWE diagnostics without findings
 	private Map<String, Diagnostic> initializeDiagnostics() {
-		// load the qm structure
-		Properties prop = PiqueProperties.getPropertiesDefault();
-		Path blankqmFilePath = Paths.get(prop.getProperty("blankqm.filepath"));
-		QualityModelImport qmImport = new QualityModelImport(blankqmFilePath);
-		QualityModel qmDescription = qmImport.importQualityModel();
-
-		Map<String, Diagnostic> diagnostics = new HashMap<>();
-
-		// for each diagnostic in the model, if it is associated with this tool,
-		// add it to the list of diagnostics
-		for (ModelNode x : qmDescription.getDiagnostics().values()) {
-			Diagnostic diag = (Diagnostic) x;
-			if (diag.getToolName().equals("flawfinder")) {
-				diagnostics.put(diag.getName(),diag);
-			}
-		}
-
-		return diagnostics;
+		// copies of the diagnostics associated with this tool, the qm structure itself is only loaded once per JVM
+		return QualityModelCache.getDiagnostics(configuration().getBlankModel(), "flawfinder");
 	}
 
 	private Integer severityToInt(String severity) {
@@ -0,0 +1,46 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import pique.analysis.ITool;
+import pique.model.Diagnostic;
+
+/**
+ * A tool that can analyze many projects in one run, paying for process start up and configuration loading once
+ * instead of once per project. See PrefetchingTool.batch for how batch results are handed to code that asks for
+ * one project at a time.
+ */
+public interface IBatchTool extends ITool {
+
+    /**
+     * @param projects paths to the projects to analyze
+     * @return for every project covered by the run, the diagnostics that received at least one finding, as
+     * parseAnalysis would return them for that project alone. Projects left out are analyzed one at a time.
+     */
+    Map<Path, Map<String, Diagnostic>> analyzeBatch(List<Path> projects);
+}
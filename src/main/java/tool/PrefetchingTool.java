@@ -0,0 +1,175 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pique.analysis.ITool;
+import pique.analysis.Tool;
+import pique.model.Diagnostic;
+import utilities.WorkerPool;
+
+/**
+ * Decorates a tool so a known set of projects can be analyzed and parsed ahead of time, on a worker pool or in one
+ * batch run of the tool.
+ *
+ * Code that walks the projects one at a time (e.g. the benchmarker used by model derivation) keeps calling
+ * analyze and parseAnalysis in its own order and simply picks up the prefetched results, so anything it
+ * aggregates from them comes out in the same order as a serial run. Projects that were not prefetched are
+ * passed through to the wrapped tool.
+ */
+public class PrefetchingTool extends Tool implements ITool {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PrefetchingTool.class);
+
+    private final ITool delegate;
+    private final Map<Path, Future<Prefetched>> pending = new ConcurrentHashMap<>();
+    private final Map<Path, Map<String, Diagnostic>> parsed = new ConcurrentHashMap<>();
+
+    public PrefetchingTool(ITool delegate) {
+        super(delegate.getName(), delegate.getToolRoot());
+        this.delegate = delegate;
+    }
+
+    /**
+     * Queue analysis and parsing of every project on the pool. Returns immediately.
+     *
+     * @param projects paths to the projects to analyze
+     * @param pool pool to run the tool on
+     */
+    public void prefetch(Collection<Path> projects, WorkerPool pool) {
+        for (Path project : projects) {
+            if (pending.containsKey(key(project))) {
+                continue; // already covered by a batch run
+            }
+            pending.put(key(project), pool.submit(() -> {
+                Path toolResults = delegate.analyze(project);
+                return new Prefetched(toolResults, delegate.parseAnalysis(toolResults));
+            }));
+        }
+    }
+
+    /**
+     * Analyze and parse every project now, in one run of the wrapped tool if it is an IBatchTool. Projects the batch
+     * did not cover, and all projects of other tools, are analyzed on demand as usual.
+     *
+     * @param projects paths to the projects to analyze
+     */
+    public void analyzeBatch(List<Path> projects) {
+        if (!(delegate instanceof IBatchTool)) {
+            return;
+        }
+        ((IBatchTool) delegate).analyzeBatch(projects).forEach((project, diagnostics) ->
+            pending.put(key(project), CompletableFuture.completedFuture(new Prefetched(project, diagnostics))));
+    }
+
+    /**
+     * Runs every batch capable tool once over all projects, the tools run concurrently on threads of their own.
+     *
+     * @param tools tools to wrap
+     * @param projects paths to the projects to analyze
+     * @return the tools wrapped in PrefetchingTools holding the batch results
+     */
+    public static Set<PrefetchingTool> batch(Set<ITool> tools, List<Path> projects) {
+        Set<PrefetchingTool> prefetchingTools = new HashSet<>();
+        List<Future<?>> runs = new ArrayList<>();
+        try (WorkerPool pool = new WorkerPool(tools.size(), 0, "batch")) {
+            for (ITool tool : tools) {
+                PrefetchingTool prefetchingTool = new PrefetchingTool(tool);
+                prefetchingTools.add(prefetchingTool);
+                runs.add(pool.submit(() -> {
+                    prefetchingTool.analyzeBatch(projects);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> run : runs) {
+                    run.get();
+                }
+            } catch (InterruptedException e) {
+                runs.forEach(run -> run.cancel(true));
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while analyzing " + projects.size() + " projects", e);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Unable to analyze " + projects.size() + " projects", e.getCause());
+        }
+        return prefetchingTools;
+    }
+
+    @Override
+    public Path analyze(Path projectLocation) {
+        Future<Prefetched> prefetched = pending.remove(key(projectLocation));
+        if (prefetched == null) {
+            return delegate.analyze(projectLocation);
+        }
+        try {
+            Prefetched result = prefetched.get();
+            parsed.put(key(result.toolResults), result.diagnostics);
+            return result.toolResults;
+        } catch (ExecutionException e) {
+            LOGGER.error("Prefetched " + getName() + " analysis of " + projectLocation + " failed, running it again", e.getCause());
+            return delegate.analyze(projectLocation);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting on " + getName() + " analysis of " + projectLocation, e);
+        }
+    }
+
+    @Override
+    public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
+        Map<String, Diagnostic> diagnostics = parsed.remove(key(toolResults));
+        return diagnostics != null ? diagnostics : delegate.parseAnalysis(toolResults);
+    }
+
+    @Override
+    public Path initialize(Path toolRoot) {
+        return delegate.initialize(toolRoot);
+    }
+
+    private static Path key(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+
+    private static class Prefetched {
+        private final Path toolResults;
+        private final Map<String, Diagnostic> diagnostics;
+
+        private Prefetched(Path toolResults, Map<String, Diagnostic> diagnostics) {
+            this.toolResults = toolResults;
+            this.diagnostics = diagnostics;
+        }
+    }
+}
@@ -0,0 +1,405 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.zip.GZIPInputStream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * CVE to CWE lookup built from NVD JSON feeds (the 1.1 yearly feeds, CVE_Items, or NVD API 2.0 responses,
+ * vulnerabilities), plain or gzipped.
+ *
+ * CVE ids are packed into longs and kept in one sorted array, the CWEs of the i-th CVE are
+ * cwes[offsets[i]] to cwes[offsets[i + 1]], so the whole NVD fits in a few megabytes and a lookup is a binary
+ * search. Recently looked up CVEs are kept in a small LRU cache in front of it.
+ *
+ * The index of the feeds named by the cwe.feeds property is written to cweIndex.bin next to them, headed by the
+ * path, size and modification time of every feed it was built from. It is read from there as long as the feeds
+ * found on load are exactly those, so the feeds are parsed once and a feed that was added, removed, replaced or
+ * moved elsewhere rebuilds the index.
+ */
+public class CweIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CweIndex.class);
+
+    private static final int FORMAT_VERSION = 2;
+    private static final int CACHE_SIZE = 1024;
+    // CVE-YYYY-NNNN... is packed as YYYY * SEQUENCE_LIMIT + NNNN...
+    private static final long SEQUENCE_LIMIT = 1_000_000_000L;
+    private static final int NVD_CWE_OTHER = -1;
+    private static final int NVD_CWE_NOINFO = -2;
+
+    private static volatile DefaultIndex defaultIndex;
+
+    private final List<String> feeds;
+    private final long[] cves;
+    private final int[] offsets;
+    private final int[] cwes;
+    private final Map<Long, String[]> cache = new LinkedHashMap<Long, String[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, String[]> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    private CweIndex(List<String> feeds, long[] cves, int[] offsets, int[] cwes) {
+        this.feeds = feeds;
+        this.cves = cves;
+        this.offsets = offsets;
+        this.cwes = cwes;
+    }
+
+    /**
+     * @return the index of the feeds named by the cwe.feeds property, or null if the property is empty
+     * or the feeds can not be read. Loaded again when the property names other feeds, e.g. after
+     * PiqueProperties.install.
+     */
+    public static CweIndex getDefault() {
+        Path feeds = PiqueProperties.getCweFeeds();
+        DefaultIndex current = defaultIndex;
+        if (current == null || !Objects.equals(current.feeds, feeds)) {
+            synchronized (CweIndex.class) {
+                current = defaultIndex;
+                if (current == null || !Objects.equals(current.feeds, feeds)) {
+                    CweIndex index = null;
+                    if (feeds != null) {
+                        try {
+                            index = load(feeds);
+                        } catch (IOException e) {
+                            LOGGER.error("Unable to read the NVD feeds in " + feeds, e);
+                        }
+                    }
+                    current = new DefaultIndex(feeds, index);
+                    defaultIndex = current;
+                }
+            }
+        }
+        return current.index;
+    }
+
+    /**
+     * @param feeds an NVD feed file, or a directory whose .json and .json.gz files are read in name order
+     * @return the index, read from the cweIndex.bin snapshot next to the feeds if it was built from exactly these
+     * feeds, built from the feeds and snapshotted otherwise
+     * @throws IOException if a feed can not be read
+     */
+    public static CweIndex load(Path feeds) throws IOException {
+        List<Path> feedFiles = new ArrayList<>();
+        if (Files.isDirectory(feeds)) {
+            File[] files = feeds.toFile().listFiles((dir, name) -> name.endsWith(".json") || name.endsWith(".json.gz"));
+            if (files != null) {
+                Arrays.sort(files);
+                for (File file : files) {
+                    feedFiles.add(file.toPath());
+                }
+            }
+        } else {
+            feedFiles.add(feeds);
+        }
+
+        Path snapshot = (Files.isDirectory(feeds) ? feeds : feeds.toAbsolutePath().getParent()).resolve("cweIndex.bin");
+        if (Files.isRegularFile(snapshot)) {
+            try {
+                CweIndex index = readFrom(snapshot, stamps(feedFiles));
+                if (index != null) {
+                    return index;
+                }
+                LOGGER.info(snapshot + " was built from other NVD feeds, parsing the feeds again");
+            } catch (IOException e) {
+                LOGGER.warn("Unable to read " + snapshot + ", parsing the NVD feeds again", e);
+            }
+        }
+        CweIndex index = RunMetrics.time("cwe.index", () -> fromFeeds(feedFiles));
+        try {
+            index.writeTo(snapshot);
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write " + snapshot + ", the feeds will be parsed again next time", e);
+        }
+        return index;
+    }
+
+    /**
+     * @param feedFiles NVD feed files, a CVE listed in several feeds takes the CWEs of the last one
+     * @throws IOException if a feed can not be read
+     */
+    public static CweIndex fromFeeds(List<Path> feedFiles) throws IOException {
+        // taken before parsing, so a feed changed meanwhile does not match the snapshot next time
+        List<String> feeds = stamps(feedFiles);
+        ObjectMapper mapper = new ObjectMapper();
+        TreeMap<Long, int[]> entries = new TreeMap<>();
+        for (Path feedFile : feedFiles) {
+            try (InputStream input = open(feedFile);
+                 JsonParser parser = mapper.getFactory().createParser(input)) {
+                // stream the items one at a time, a yearly feed is hundreds of megabytes of json
+                while (parser.nextToken() != null) {
+                    if (parser.currentToken() == JsonToken.FIELD_NAME
+                        && ("CVE_Items".equals(parser.getCurrentName()) || "vulnerabilities".equals(parser.getCurrentName()))
+                        && parser.nextToken() == JsonToken.START_ARRAY) {
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            addItem(entries, mapper.readTree(parser));
+                        }
+                    }
+                }
+            }
+            LOGGER.info("Read NVD feed " + feedFile + ", " + entries.size() + " CVEs so far");
+        }
+
+        long[] cves = new long[entries.size()];
+        int[] offsets = new int[entries.size() + 1];
+        int total = 0;
+        for (int[] entryCwes : entries.values()) {
+            total += entryCwes.length;
+        }
+        int[] cwes = new int[total];
+        int i = 0;
+        for (Map.Entry<Long, int[]> entry : entries.entrySet()) {
+            cves[i] = entry.getKey();
+            System.arraycopy(entry.getValue(), 0, cwes, offsets[i], entry.getValue().length);
+            offsets[i + 1] = offsets[i] + entry.getValue().length;
+            i++;
+        }
+        return new CweIndex(feeds, cves, offsets, cwes);
+    }
+
+    /**
+     * @return the absolute path, size and modification time of each feed file, in order
+     */
+    private static List<String> stamps(List<Path> feedFiles) throws IOException {
+        List<String> stamps = new ArrayList<>();
+        for (Path feedFile : feedFiles) {
+            stamps.add(feedFile.toAbsolutePath().normalize() + " " + Files.size(feedFile) + " "
+                + Files.getLastModifiedTime(feedFile).toMillis());
+        }
+        return stamps;
+    }
+
+    private static void addItem(TreeMap<Long, int[]> entries, JsonNode item) {
+        JsonNode cve = item.path("cve");
+        long key;
+        List<JsonNode> weaknesses = new ArrayList<>();
+        if (cve.has("CVE_data_meta")) {
+            key = pack(cve.path("CVE_data_meta").path("ID").asText());
+            cve.path("problemtype").path("problemtype_data").forEach(weaknesses::add);
+        } else {
+            key = pack(cve.path("id").asText());
+            cve.path("weaknesses").forEach(weaknesses::add);
+        }
+        if (key < 0) {
+            return;
+        }
+        int[] itemCwes = weaknesses.stream()
+            .flatMap(weakness -> {
+                List<JsonNode> descriptions = new ArrayList<>();
+                weakness.path("description").forEach(descriptions::add);
+                return descriptions.stream();
+            })
+            .mapToInt(description -> parseCwe(description.path("value").asText()))
+            .filter(cwe -> cwe != Integer.MIN_VALUE)
+            .distinct()
+            .toArray();
+        entries.put(key, itemCwes);
+    }
+
+    /**
+     * @param cve e.g. CVE-2021-44228
+     * @return the CWEs NVD assigns to the CVE, e.g. {"CWE-502", "CWE-400"}, NVD-CWE-Other and NVD-CWE-noinfo
+     * included. Empty if the CVE is not in the index or not a CVE id.
+     */
+    public String[] lookup(String cve) {
+        long key = pack(cve);
+        if (key < 0) {
+            return new String[0];
+        }
+        String[] result;
+        synchronized (cache) {
+            result = cache.get(key);
+        }
+        if (result == null) {
+            int i = Arrays.binarySearch(cves, key);
+            if (i < 0) {
+                result = new String[0];
+            } else {
+                result = new String[offsets[i + 1] - offsets[i]];
+                for (int c = offsets[i]; c < offsets[i + 1]; c++) {
+                    result[c - offsets[i]] = cweName(cwes[c]);
+                }
+            }
+            synchronized (cache) {
+                cache.put(key, result);
+            }
+        }
+        return result.clone();
+    }
+
+    /**
+     * @return number of CVEs in the index
+     */
+    public int size() {
+        return cves.length;
+    }
+
+    /**
+     * Writes the index in a compact binary form, headed by the feeds it was built from, see readFrom.
+     */
+    public void writeTo(Path file) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "cweIndex", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(feeds.size());
+            for (String feed : feeds) {
+                out.writeUTF(feed);
+            }
+            out.writeInt(cves.length);
+            out.writeInt(cwes.length);
+            for (long cve : cves) {
+                out.writeLong(cve);
+            }
+            for (int offset : offsets) {
+                out.writeInt(offset);
+            }
+            for (int cwe : cwes) {
+                out.writeInt(cwe);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * @throws IOException if the file can not be read or was written by an incompatible version
+     */
+    public static CweIndex readFrom(Path file) throws IOException {
+        return readFrom(file, null);
+    }
+
+    /**
+     * @param expectedFeeds stamps of the feeds the index has to be built from, null to accept any
+     * @return the index, or null if it was built from other feeds
+     */
+    private static CweIndex readFrom(Path file, List<String> expectedFeeds) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unsupported CWE index format in " + file);
+            }
+            List<String> feeds = new ArrayList<>();
+            for (int i = in.readInt(); i > 0; i--) {
+                feeds.add(in.readUTF());
+            }
+            if (expectedFeeds != null && !expectedFeeds.equals(feeds)) {
+                return null;
+            }
+            long[] cves = new long[in.readInt()];
+            int[] offsets = new int[cves.length + 1];
+            int[] cwes = new int[in.readInt()];
+            for (int i = 0; i < cves.length; i++) {
+                cves[i] = in.readLong();
+            }
+            for (int i = 0; i < offsets.length; i++) {
+                offsets[i] = in.readInt();
+            }
+            for (int i = 0; i < cwes.length; i++) {
+                cwes[i] = in.readInt();
+            }
+            return new CweIndex(feeds, cves, offsets, cwes);
+        }
+    }
+
+    private static InputStream open(Path feedFile) throws IOException {
+        InputStream input = new BufferedInputStream(Files.newInputStream(feedFile));
+        return feedFile.getFileName().toString().endsWith(".gz") ? new GZIPInputStream(input) : input;
+    }
+
+    /**
+     * @return CVE-YYYY-NNNN packed into a long, -1 if cve is not a CVE id
+     */
+    static long pack(String cve) {
+        if (cve == null) return -1;
+        String id = cve.trim();
+        if (id.length() < 10 || !id.regionMatches(true, 0, "CVE-", 0, 4) || id.charAt(8) != '-') {
+            return -1;
+        }
+        try {
+            long year = Long.parseLong(id.substring(4, 8));
+            long sequence = Long.parseLong(id.substring(9));
+            if (sequence < 0 || sequence >= SEQUENCE_LIMIT) {
+                return -1;
+            }
+            return year * SEQUENCE_LIMIT + sequence;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int parseCwe(String value) {
+        if ("NVD-CWE-Other".equals(value)) return NVD_CWE_OTHER;
+        if ("NVD-CWE-noinfo".equals(value)) return NVD_CWE_NOINFO;
+        if (!value.startsWith("CWE-")) return Integer.MIN_VALUE;
+        try {
+            return Integer.parseInt(value.substring(4));
+        } catch (NumberFormatException e) {
+            return Integer.MIN_VALUE;
+        }
+    }
+
+    private static String cweName(int cwe) {
+        if (cwe == NVD_CWE_OTHER) return "NVD-CWE-Other";
+        if (cwe == NVD_CWE_NOINFO) return "NVD-CWE-noinfo";
+        return "CWE-" + cwe;
+    }
+
+    /**
+     * The index of getDefault and the cwe.feeds it was loaded for.
+     */
+    private static class DefaultIndex {
+        private final Path feeds;
+        private final CweIndex index;
+
+        private DefaultIndex(Path feeds, CweIndex index) {
+            this.feeds = feeds;
+            this.index = index;
+        }
+    }
+}
@@ -28,9 +28,16 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -46,7 +53,16 @@ public class HelperFunctions {
 			return dashed;
 	}
 	
+	/**
+	 * @param cve e.g. CVE-2021-44228
+	 * @return the CWEs of the CVE, looked up in the NVD feeds named by cwe.feeds (see CweIndex). Without feeds
+	 * CVEtoCWE.py is run for the CVE.
+	 */
 	public static String[] getCWE(String cve) {
+		CweIndex index = CweIndex.getDefault();
+		if (index != null) {
+			return index.lookup(cve);
+		}
 		String cwe = "";
 		String temp = (new File("")).toPath().toAbsolutePath().toString();
 		String cmd = "python " +temp + "\\src\\main\\java\\utilities\\CVEtoCWE.py " + cve;
@@ -69,7 +85,15 @@ public class HelperFunctions {
 	  * @throws IOException
 	  */
 	public static String getOutputFromProgram(String program) throws IOException {
-	    Process proc = Runtime.getRuntime().exec(program);
+	    ProcessScheduler.acquire();
+	    try {
+	        return RunMetrics.time("subprocess", () -> readOutput(Runtime.getRuntime().exec(program)));
+	    } finally {
+	        ProcessScheduler.release();
+	    }
+	}
+
+	private static String readOutput(Process proc) {
 	    return Stream.of(proc.getErrorStream(), proc.getInputStream()).parallel().map((InputStream isForOutput) -> {
 	        StringBuilder output = new StringBuilder();
 	        try (BufferedReader br = new BufferedReader(new InputStreamReader(isForOutput))) {
@@ -85,6 +109,118 @@ public class HelperFunctions {
 	    }).collect(Collectors.joining());
 	}
 	
+	/**
+	 * Run a program without buffering its output in memory. The operating system writes standard out to the
+	 * stdout file and standard error to the stderr file, so the size of the output does not matter.
+	 * Waits for a slot from ProcessScheduler before starting the program.
+	 *
+	 * @param program - the command and its arguments
+	 * @param stdout - file that receives standard out, overwritten if it exists
+	 * @param stderr - file that receives standard error, overwritten if it exists
+	 * @param timeoutSeconds - time the program may run before it is killed, 0 or less to wait indefinitely
+	 * @return the exit code of the program
+	 * @throws IOException if the program could not be started, timed out, or the waiting thread was interrupted.
+	 * The output files may then be missing or incomplete and must not be read as a finished run.
+	 */
+	public static int runProgram(String[] program, File stdout, File stderr, long timeoutSeconds) throws IOException {
+	    ProcessBuilder builder = new ProcessBuilder(program)
+	        .redirectOutput(ProcessBuilder.Redirect.to(stdout))
+	        .redirectError(ProcessBuilder.Redirect.to(stderr));
+	    ProcessScheduler.acquire();
+	    Process proc = null;
+	    RunMetrics.Stage stage = RunMetrics.start("subprocess");
+	    try {
+	        proc = builder.start();
+	        int exitCode;
+	        if (timeoutSeconds > 0) {
+	            if (!proc.waitFor(timeoutSeconds, TimeUnit.SECONDS)) {
+	                RunMetrics.increment("subprocess.timeout");
+	                throw new IOException(program[0] + " did not finish within " + timeoutSeconds + " seconds");
+	            }
+	            exitCode = proc.exitValue();
+	        } else {
+	            exitCode = proc.waitFor();
+	        }
+	        RunMetrics.exitCode(exitCode);
+	        return exitCode;
+	    } catch (InterruptedException e) {
+	        Thread.currentThread().interrupt();
+	        throw new InterruptedIOException("Interrupted while waiting on " + program[0]);
+	    } finally {
+	        if (proc != null && proc.isAlive()) {
+	            proc.destroyForcibly();
+	        }
+	        stage.close();
+	        ProcessScheduler.release();
+	    }
+	}
+
+	/**
+	 * @param directory - directory holding one project per file, e.g. project.root or benchmark.repo
+	 * @return the regular files directly inside the directory, sorted by path
+	 */
+	public static List<Path> listProjectFiles(Path directory) {
+	    List<Path> projects = new ArrayList<>();
+	    File[] files = directory.toFile().listFiles();
+	    if (files != null) {
+	        for (File file : files) {
+	            if (file.isFile()) {
+	                projects.add(file.toPath());
+	            }
+	        }
+	    }
+	    Collections.sort(projects);
+	    return projects;
+	}
+
+	/**
+	 * @param filePath - Path of file to hash
+	 * @return the SHA-256 digest of the file content as lower case hex
+	 * @throws IOException
+	 */
+	public static String sha256(Path filePath) throws IOException {
+	    MessageDigest digest = newSha256();
+	    byte[] buffer = new byte[64 * 1024];
+	    try (InputStream in = Files.newInputStream(filePath)) {
+	        int read;
+	        while ((read = in.read(buffer)) != -1) {
+	            digest.update(buffer, 0, read);
+	        }
+	    }
+	    return toHex(digest.digest());
+	}
+
+	/**
+	 * @param parts - strings to hash, each one is terminated by a 0 byte so ("ab", "c") and ("a", "bc") differ
+	 * @return the SHA-256 digest of the parts as lower case hex
+	 */
+	public static String sha256(String... parts) {
+	    MessageDigest digest = newSha256();
+	    for (String part : parts) {
+	        digest.update(part.getBytes(StandardCharsets.UTF_8));
+	        digest.update((byte) 0);
+	    }
+	    return toHex(digest.digest());
+	}
+
+	private static MessageDigest newSha256() {
+	    try {
+	        return MessageDigest.getInstance("SHA-256");
+	    } catch (NoSuchAlgorithmException e) {
+	        // every Java platform is required to support SHA-256
+	        throw new IllegalStateException(e);
+	    }
+	}
+
+	private static String toHex(byte[] bytes) {
+	    StringBuilder hex = new StringBuilder(bytes.length * 2);
+	    for (byte b : bytes) {
+	        hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+	        hex.append(Character.forDigit(b & 0xF, 16));
+	    }
+	    return hex.toString();
+	}
+
 	 /**
 	  * 
 	  * 
@@ -0,0 +1,471 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * Immutable, typed snapshot of a PIQUE-vendor properties file. Every value is parsed and checked once, when the
+ * configuration is created, so a malformed value fails the run up front instead of in the middle of an evaluation.
+ *
+ * A configuration is handed to SingleProjectEvaluator, QualityModelDeriver, EvaluationServer and the tool wrappers
+ * explicitly, so several configurations can be used in one JVM. Settings that belong to the whole process (the tool
+ * process cap, the tool result cache, run metrics, the CWE index and the primitive evaluation switch of the
+ * evaluators) are still read through PiqueProperties, from the configuration installed there, so a configuration
+ * that is not installed has to agree with it on those (see requireProcessSettingsOf).
+ */
+public final class PiqueConfiguration {
+
+    /** file name, without extension, the derived model is exported to when derived.model.filepath is not set */
+    private static final String DERIVED_MODEL_NAME = "CVendorQualityModel";
+
+    private final Properties properties;
+    private final String source;
+
+    private final Path projectRoot;
+    private final Path resultsDirectory;
+    private final Path blankModel;
+    private final Path derivedModel;
+    private final Path benchmarkRepository;
+    private final Path comparisonsDirectory;
+    private final Path cppcheckPath;
+    private final Path flawfinderPath;
+
+    private final boolean saveBenchmarkResults;
+    private final int evaluationThreads;
+    private final int derivationThreads;
+    private final long evaluationTimeoutSeconds;
+    private final long toolTimeoutSeconds;
+    private final int maxToolProcesses;
+    private final Path toolCacheDirectory;
+    private final boolean deriveIncrementally;
+    private final boolean useAHPWeights;
+    private final boolean usePrimitiveEvaluation;
+    private final boolean useCompiledEvaluation;
+    private final boolean useBatchEvaluation;
+    private final Path previousResultsDirectory;
+    private final boolean deduplicateFindings;
+    private final boolean countFindings;
+    private final Path metricsDirectory;
+    private final boolean writePrometheusMetrics;
+    private final boolean useBatchTools;
+    private final int cppcheckJobs;
+    private final Path cppcheckBuildDirectory;
+    private final Path cweFeeds;
+    private final int serverPort;
+    private final int serverQueueCapacity;
+
+    private PiqueConfiguration(Properties properties, String source) {
+        this.properties = properties;
+        this.source = source;
+
+        projectRoot = path("project.root");
+        resultsDirectory = path("results.directory");
+        blankModel = path("blankqm.filepath");
+        Path derived = path("derived.model.filepath");
+        derivedModel = derived != null || resultsDirectory == null ? derived : resultsDirectory.resolve(DERIVED_MODEL_NAME + ".json");
+        benchmarkRepository = path("benchmark.repo");
+        comparisonsDirectory = path("comparisons.directory");
+        cppcheckPath = path("tool.cppcheck.filepath");
+        flawfinderPath = path("tool.flawfinder.filepath");
+
+        String save = value("save.benchmark.results", "false").toLowerCase();
+        saveBenchmarkResults = save.equals("true") || save.equals("yes");
+        evaluationThreads = threads("evaluation.threads");
+        derivationThreads = threads("derivation.threads");
+        evaluationTimeoutSeconds = longValue("evaluation.timeout.seconds", 0);
+        toolTimeoutSeconds = longValue("tool.timeout.seconds", 0);
+        maxToolProcesses = threads("tool.max.processes");
+        toolCacheDirectory = path("tool.cache.directory");
+        deriveIncrementally = bool("derivation.incremental");
+        useAHPWeights = bool("derivation.weights.ahp");
+        usePrimitiveEvaluation = bool("evaluation.primitive");
+        useCompiledEvaluation = bool("evaluation.compiled");
+        useBatchEvaluation = bool("evaluation.batch");
+        previousResultsDirectory = path("evaluation.previous.results");
+        deduplicateFindings = bool("findings.deduplicate");
+        countFindings = bool("findings.counting");
+        metricsDirectory = path("metrics.directory");
+        writePrometheusMetrics = bool("metrics.prometheus");
+        useBatchTools = bool("tool.batch");
+        cppcheckJobs = (int) Math.max(1, longValue("tool.cppcheck.jobs", 1));
+        cppcheckBuildDirectory = path("tool.cppcheck.build.directory");
+        cweFeeds = path("cwe.feeds");
+        serverPort = (int) longValue("server.port", 7421);
+        serverQueueCapacity = (int) Math.max(0, longValue("server.queue.capacity", 16));
+        if (serverPort < 0 || serverPort > 65535) {
+            throw invalid("server.port", String.valueOf(serverPort));
+        }
+    }
+
+    /**
+     * @param propertiesLocation path to a properties file
+     * @throws UncheckedIOException if the file can not be read
+     * @throws IllegalArgumentException if a value is malformed
+     */
+    public static PiqueConfiguration load(String propertiesLocation) {
+        Path file = Paths.get(propertiesLocation);
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(file)) {
+            properties.load(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read properties file " + file, e);
+        }
+        return new PiqueConfiguration(properties, file.toString());
+    }
+
+    /**
+     * @param properties values to snapshot, copied so later changes to properties do not show through
+     * @throws IllegalArgumentException if a value is malformed
+     */
+    public static PiqueConfiguration of(Properties properties) {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        return new PiqueConfiguration(copy, "properties");
+    }
+
+    /**
+     * Checks that the settings an evaluation needs are present.
+     *
+     * @return this configuration
+     * @throws IllegalArgumentException naming every missing property
+     */
+    public PiqueConfiguration validateForEvaluation() {
+        return require("project.root", "results.directory", "blankqm.filepath", "tool.cppcheck.filepath", "tool.flawfinder.filepath");
+    }
+
+    /**
+     * Checks that the settings a model derivation needs are present.
+     *
+     * @return this configuration
+     * @throws IllegalArgumentException naming every missing property
+     */
+    public PiqueConfiguration validateForDerivation() {
+        return require("results.directory", "blankqm.filepath", "benchmark.repo", "comparisons.directory",
+            "tool.cppcheck.filepath", "tool.flawfinder.filepath");
+    }
+
+    /**
+     * Checks that this configuration agrees with the installed one on the settings that are read process-wide, so
+     * handing a configuration to SingleProjectEvaluator or QualityModelDeriver without installing it can not
+     * silently run with another primitive switch, tool cache, process cap, metrics output or CWE index.
+     *
+     * @param installed the configuration installed in PiqueProperties
+     * @return this configuration
+     * @throws IllegalArgumentException naming every process-wide property that differs
+     */
+    public PiqueConfiguration requireProcessSettingsOf(PiqueConfiguration installed) {
+        if (installed == this) {
+            return this;
+        }
+        List<String> differing = new ArrayList<>();
+        if (usePrimitiveEvaluation != installed.usePrimitiveEvaluation) {
+            differing.add("evaluation.primitive");
+        }
+        if (maxToolProcesses != installed.maxToolProcesses) {
+            differing.add("tool.max.processes");
+        }
+        if (!Objects.equals(toolCacheDirectory, installed.toolCacheDirectory)) {
+            differing.add("tool.cache.directory");
+        }
+        if (!Objects.equals(metricsDirectory, installed.metricsDirectory)) {
+            differing.add("metrics.directory");
+        }
+        if (writePrometheusMetrics != installed.writePrometheusMetrics) {
+            differing.add("metrics.prometheus");
+        }
+        if (!Objects.equals(cweFeeds, installed.cweFeeds)) {
+            differing.add("cwe.feeds");
+        }
+        if (!differing.isEmpty()) {
+            throw new IllegalArgumentException(String.join(", ", differing) + " in " + source
+                + " differ from the process-wide configuration (" + installed.source + "), install it with PiqueProperties.install");
+        }
+        return this;
+    }
+
+    private PiqueConfiguration require(String... keys) {
+        List<String> missing = new ArrayList<>();
+        for (String key : keys) {
+            if (value(key, "").isEmpty()) {
+                missing.add(key);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("Missing " + String.join(", ", missing) + " in " + source);
+        }
+        return this;
+    }
+
+    /**
+     * @param resultsDirectory directory to write results and tool reports to
+     * @return a copy of this configuration writing to resultsDirectory, reading the same derived model
+     */
+    public PiqueConfiguration withResultsDirectory(Path resultsDirectory) {
+        Properties copy = toProperties();
+        copy.setProperty("results.directory", resultsDirectory.toString());
+        if (derivedModel != null) {
+            copy.setProperty("derived.model.filepath", derivedModel.toString());
+        }
+        return new PiqueConfiguration(copy, source);
+    }
+
+    /**
+     * @return the raw value of a property not covered by a typed getter, or defaultValue
+     */
+    public String getProperty(String key, String defaultValue) {
+        return properties.getProperty(key, defaultValue);
+    }
+
+    /**
+     * @return a copy of the values this configuration was created from
+     */
+    public Properties toProperties() {
+        Properties copy = new Properties();
+        copy.putAll(properties);
+        return copy;
+    }
+
+    public Path getProjectRoot() {
+        return projectRoot;
+    }
+
+    public Path getResultsDirectory() {
+        return resultsDirectory;
+    }
+
+    /**
+     * @return directory tool results are written to, the benchmark directory under the results directory
+     * when save.benchmark.results is set
+     */
+    public Path getToolResultsDirectory() {
+        return saveBenchmarkResults ? resultsDirectory.resolve("benchmark") : resultsDirectory;
+    }
+
+    public Path getBlankModel() {
+        return blankModel;
+    }
+
+    /**
+     * @return file the derived model is exported to and evaluations read it from. Defaults to
+     * CVendorQualityModel.json in the results directory.
+     */
+    public Path getDerivedModel() {
+        return derivedModel;
+    }
+
+    public Path getBenchmarkRepository() {
+        return benchmarkRepository;
+    }
+
+    public Path getComparisonsDirectory() {
+        return comparisonsDirectory;
+    }
+
+    public Path getCppcheckPath() {
+        return cppcheckPath;
+    }
+
+    public Path getFlawfinderPath() {
+        return flawfinderPath;
+    }
+
+    public boolean saveBenchmarkResults() {
+        return saveBenchmarkResults;
+    }
+
+    /**
+     * @return number of projects evaluated concurrently. Defaults to the number of available processors.
+     */
+    public int getEvaluationThreads() {
+        return evaluationThreads;
+    }
+
+    /**
+     * @return number of benchmark projects analyzed concurrently during derivation. Defaults to the number of
+     * available processors, 1 analyzes the benchmark serially.
+     */
+    public int getDerivationThreads() {
+        return derivationThreads;
+    }
+
+    /**
+     * @return time in seconds a single project evaluation may take before it is abandoned, 0 for no limit.
+     */
+    public long getEvaluationTimeoutSeconds() {
+        return evaluationTimeoutSeconds;
+    }
+
+    /**
+     * @return time in seconds a single tool process may run before it is killed, 0 for no limit.
+     */
+    public long getToolTimeoutSeconds() {
+        return toolTimeoutSeconds;
+    }
+
+    /**
+     * @return maximum number of tool processes alive at once. Defaults to the number of available processors.
+     */
+    public int getMaxToolProcesses() {
+        return maxToolProcesses;
+    }
+
+    /**
+     * @return directory of the tool result cache, or null if the cache is disabled.
+     */
+    public Path getToolCacheDirectory() {
+        return toolCacheDirectory;
+    }
+
+    public boolean deriveIncrementally() {
+        return deriveIncrementally;
+    }
+
+    public boolean useAHPWeights() {
+        return useAHPWeights;
+    }
+
+    public boolean usePrimitiveEvaluation() {
+        return usePrimitiveEvaluation;
+    }
+
+    public boolean useCompiledEvaluation() {
+        return useCompiledEvaluation;
+    }
+
+    public boolean useBatchEvaluation() {
+        return useBatchEvaluation;
+    }
+
+    /**
+     * @return directory holding the results of a previous evaluation to re-score projects from, or null.
+     */
+    public Path getPreviousResultsDirectory() {
+        return previousResultsDirectory;
+    }
+
+    public boolean deduplicateFindings() {
+        return deduplicateFindings;
+    }
+
+    public boolean countFindings() {
+        return countFindings;
+    }
+
+    /**
+     * @return directory run metrics are written to, or null to not write them.
+     */
+    public Path getMetricsDirectory() {
+        return metricsDirectory;
+    }
+
+    public boolean writePrometheusMetrics() {
+        return writePrometheusMetrics;
+    }
+
+    public boolean useBatchTools() {
+        return useBatchTools;
+    }
+
+    public int getCppcheckJobs() {
+        return cppcheckJobs;
+    }
+
+    /**
+     * @return directory cppcheck keeps its incremental results in during batched runs, or null for none.
+     */
+    public Path getCppcheckBuildDirectory() {
+        return cppcheckBuildDirectory;
+    }
+
+    /**
+     * @return NVD feed file or directory of feeds, or null.
+     */
+    public Path getCweFeeds() {
+        return cweFeeds;
+    }
+
+    public int getServerPort() {
+        return serverPort;
+    }
+
+    public int getServerQueueCapacity() {
+        return serverQueueCapacity;
+    }
+
+    private String value(String key, String defaultValue) {
+        String value = properties.getProperty(key);
+        return value == null ? defaultValue : value.trim();
+    }
+
+    private Path path(String key) {
+        String value = value(key, "");
+        try {
+            return value.isEmpty() ? null : Paths.get(value);
+        } catch (RuntimeException e) {
+            throw invalid(key, value);
+        }
+    }
+
+    private boolean bool(String key) {
+        return Boolean.parseBoolean(value(key, "false"));
+    }
+
+    private int threads(String key) {
+        String value = value(key, "");
+        if (value.isEmpty()) {
+            return Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            return Math.max(1, Integer.parseInt(value));
+        } catch (NumberFormatException e) {
+            throw invalid(key, value);
+        }
+    }
+
+    private long longValue(String key, long defaultValue) {
+        String value = value(key, "");
+        if (value.isEmpty()) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw invalid(key, value);
+        }
+    }
+
+    private IllegalArgumentException invalid(String key, String value) {
+        return new IllegalArgumentException("Invalid value '" + value + "' for " + key + " in " + source);
+    }
+}
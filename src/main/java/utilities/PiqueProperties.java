@@ -27,13 +27,20 @@ import lombok.Getter;
 
 import java.io.File;
 import java.io.FileReader;
+import java.nio.file.Path;
 import java.util.Properties;
 
+/**
+ * Process-wide properties of the legacy String path entry points. New code takes a PiqueConfiguration instead, the
+ * typed getters here read the configuration of the properties currently loaded, see getConfiguration().
+ */
 public class PiqueProperties {
 
     @Getter
     protected static Properties properties;
 
+    private static volatile Snapshot snapshot;
+
     public static Properties getProperties(String propertiesLocation){
         properties = new Properties();
         try {
@@ -54,14 +61,186 @@ public class PiqueProperties {
         }
     }
 
+    /**
+     * @return immutable configuration of the loaded properties, the default properties file if none were loaded.
+     * Loading other properties, or installing a configuration, replaces it.
+     */
+    public static PiqueConfiguration getConfiguration(){
+        Properties current = getPropertiesDefault();
+        Snapshot cached = snapshot;
+        if (cached == null || cached.properties != current) {
+            cached = new Snapshot(current, PiqueConfiguration.of(current));
+            snapshot = cached;
+        }
+        return cached.configuration;
+    }
+
+    /**
+     * Make configuration the process-wide one, read by code that is not handed a configuration (tool processes,
+     * result cache, run metrics, CWE index, evaluators).
+     */
+    public static synchronized void install(PiqueConfiguration configuration){
+        properties = configuration.toProperties();
+        snapshot = new Snapshot(properties, configuration);
+    }
+
     public static boolean saveBenchmarkResults(){
-        switch (PiqueProperties.getProperties().getProperty("save.benchmark.results").toLowerCase()){
-            case "true":
-            case "yes":
-                return true;
-            default:
-                return false;
+        return getConfiguration().saveBenchmarkResults();
+    }
+
+    /**
+     * @return number of projects evaluated concurrently. Defaults to the number of available processors.
+     */
+    public static int getEvaluationThreads(){
+        return getConfiguration().getEvaluationThreads();
+    }
+
+    /**
+     * @return number of benchmark projects analyzed concurrently during derivation. Defaults to the number of
+     * available processors, 1 analyzes the benchmark serially.
+     */
+    public static int getDerivationThreads(){
+        return getConfiguration().getDerivationThreads();
+    }
+
+    /**
+     * @return true to keep benchmark measure values next to the derived model and only analyze changed benchmark
+     * projects on the next derivation.
+     */
+    public static boolean deriveIncrementally(){
+        return getConfiguration().deriveIncrementally();
+    }
+
+    /**
+     * @return true to weight the derived model from the comparison matrices, see calibration.AHPWeighter, whatever
+     * weights strategy the model declares.
+     */
+    public static boolean useAHPWeights(){
+        return getConfiguration().useAHPWeights();
+    }
+
+    /**
+     * @return true to evaluate weighted sums on doubles instead of BigDecimal, see evaluator.WeightedAverageEvaluator.
+     */
+    public static boolean usePrimitiveEvaluation(){
+        return getConfiguration().usePrimitiveEvaluation();
+    }
+
+    /**
+     * @return true to score projects with the compiled model, see evaluator.CompiledQualityModel.
+     */
+    public static boolean useCompiledEvaluation(){
+        return getConfiguration().useCompiledEvaluation();
+    }
+
+    /**
+     * @return true to score all projects of project.root as one batch, see evaluator.BatchEvaluator.
+     */
+    public static boolean useBatchEvaluation(){
+        return getConfiguration().useBatchEvaluation();
+    }
+
+    /**
+     * @return directory holding the results of a previous evaluation to re-score projects from, or null to
+     * evaluate every project in full.
+     */
+    public static Path getPreviousResultsDirectory(){
+        return getConfiguration().getPreviousResultsDirectory();
+    }
+
+    /**
+     * @return true to drop findings with the same diagnostic, rule, file, line and column as one already collected
+     * from the same report.
+     */
+    public static boolean deduplicateFindings(){
+        return getConfiguration().deduplicateFindings();
+    }
+
+    /**
+     * @return true to count findings per diagnostic and rule while parsing instead of keeping every finding.
+     */
+    public static boolean countFindings(){
+        return getConfiguration().countFindings();
+    }
+
+    /**
+     * @return directory run metrics are written to at the end of a run, or null to not write them.
+     */
+    public static Path getMetricsDirectory(){
+        return getConfiguration().getMetricsDirectory();
+    }
+
+    /**
+     * @return true to also write run metrics in the Prometheus text format.
+     */
+    public static boolean writePrometheusMetrics(){
+        return getConfiguration().writePrometheusMetrics();
+    }
+
+    /**
+     * @return loopback port the evaluation server listens on, 0 to pick a free port.
+     */
+    public static int getServerPort(){
+        return getConfiguration().getServerPort();
+    }
+
+    /**
+     * @return number of evaluation jobs the server accepts beyond those running before it answers BUSY.
+     */
+    public static int getServerQueueCapacity(){
+        return getConfiguration().getServerQueueCapacity();
+    }
+
+    /**
+     * @return true to run tools that support it once over all projects instead of once per project, see tool.IBatchTool.
+     */
+    public static boolean useBatchTools(){
+        return getConfiguration().useBatchTools();
+    }
+
+    /**
+     * @return number of parallel jobs of a batched cppcheck run, 1 by default. cppcheck skips its unusedFunction
+     * check with more than one job.
+     */
+    public static int getCppcheckJobs(){
+        return getConfiguration().getCppcheckJobs();
+    }
+
+    /**
+     * @return directory cppcheck keeps its incremental analysis results in during batched runs, or null for none.
+     */
+    public static Path getCppcheckBuildDirectory(){
+        return getConfiguration().getCppcheckBuildDirectory();
+    }
+
+    /**
+     * @return NVD feed file or directory of feeds to look CWEs of CVEs up in, see CweIndex, or null to run CVEtoCWE.py.
+     */
+    public static Path getCweFeeds(){
+        return getConfiguration().getCweFeeds();
+    }
+
+    /**
+     * @return time in seconds a single project evaluation may take before it is abandoned, 0 for no limit.
+     */
+    public static long getEvaluationTimeoutSeconds(){
+        return getConfiguration().getEvaluationTimeoutSeconds();
+    }
+
+    /**
+     * @return time in seconds a single tool process may run before it is killed, 0 for no limit.
+     */
+    public static long getToolTimeoutSeconds(){
+        return getConfiguration().getToolTimeoutSeconds();
+    }
+
+    private static class Snapshot {
+        private final Properties properties;
+        private final PiqueConfiguration configuration;
+
+        private Snapshot(Properties properties, PiqueConfiguration configuration) {
+            this.properties = properties;
+            this.configuration = configuration;
         }
     }
-    
 }
@@ -0,0 +1,81 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Caps the number of external tool processes (cppcheck, flawfinder, ...) running at the same time,
+ * across every project being evaluated in this JVM. The limit is read once from the
+ * tool.max.processes property and defaults to the number of available processors.
+ *
+ * Usage:
+ * <pre>
+ *     ProcessScheduler.acquire();
+ *     try {
+ *         ... start the process and wait for it ...
+ *     } finally {
+ *         ProcessScheduler.release();
+ *     }
+ * </pre>
+ */
+public class ProcessScheduler {
+
+    private static volatile Semaphore slots;
+
+    /**
+     * Block until a process slot is free.
+     *
+     * @throws InterruptedIOException if the waiting thread is interrupted, e.g. because its evaluation timed out
+     */
+    public static void acquire() throws IOException {
+        try {
+            getSlots().acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a free tool process slot");
+        }
+    }
+
+    public static void release() {
+        getSlots().release();
+    }
+
+    public static int getMaxProcesses() {
+        return PiqueProperties.getConfiguration().getMaxToolProcesses();
+    }
+
+    private static Semaphore getSlots() {
+        if (slots == null) {
+            synchronized (ProcessScheduler.class) {
+                if (slots == null) {
+                    slots = new Semaphore(getMaxProcesses(), true);
+                }
+            }
+        }
+        return slots;
+    }
+}
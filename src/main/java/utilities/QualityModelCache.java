@@ -0,0 +1,161 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import evaluator.CompiledQualityModel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pique.model.Diagnostic;
+import pique.model.ModelNode;
+import pique.model.QualityModel;
+import pique.model.QualityModelImport;
+
+/**
+ * Imports every quality model file once per JVM and hands out copies of it.
+ * Entries are keyed by the absolute path of the model file and its modification time, so editing the
+ * file on disk (e.g. re-deriving the model) makes the next caller import it again.
+ *
+ * Callers always get their own deep copy, the imported prototype is never handed out and never mutated.
+ */
+public class QualityModelCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QualityModelCache.class);
+
+    private static final Map<Path, CachedModel> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * @param qmLocation path to a quality model json file
+     * @return a deep copy of the model, safe to evaluate and modify
+     */
+    public static QualityModel getModel(Path qmLocation) {
+        CachedModel cached = getCachedModel(qmLocation);
+        return RunMetrics.time("model.copy", cached.prototype::clone);
+    }
+
+    /**
+     * Copies of the diagnostics of a model that belong to the given tools, without findings.
+     * Only the diagnostics are copied, which is much cheaper than copying the whole model.
+     *
+     * @param qmLocation path to a quality model json file
+     * @param toolNames tools whose diagnostics to return, as named in the diagnostics' toolName field
+     * @return a new, modifiable map of diagnostic name to diagnostic
+     */
+    public static Map<String, Diagnostic> getDiagnostics(Path qmLocation, String... toolNames) {
+        Set<String> tools = new HashSet<>(Arrays.asList(toolNames));
+        Map<String, Diagnostic> diagnostics = new HashMap<>();
+        for (Diagnostic diag : getCachedModel(qmLocation).diagnostics.values()) {
+            if (tools.contains(diag.getToolName())) {
+                diagnostics.put(diag.getName(), (Diagnostic) diag.clone());
+            }
+        }
+        return diagnostics;
+    }
+
+    /**
+     * @param qmLocation path to a quality model json file
+     * @return read-only index of diagnostic name to the name of the tool that reports it
+     */
+    public static Map<String, String> getDiagnosticTools(Path qmLocation) {
+        return getCachedModel(qmLocation).diagnosticTools;
+    }
+
+    /**
+     * @param qmLocation path to a derived quality model json file
+     * @return the model compiled for evaluation, compiled once per JVM and shared by all callers
+     * @throws IllegalArgumentException if the model uses an evaluator that can not be compiled
+     */
+    public static CompiledQualityModel getCompiledModel(Path qmLocation) {
+        CachedModel cached = getCachedModel(qmLocation);
+        CompiledQualityModel compiled = cached.compiled;
+        if (compiled == null) {
+            synchronized (cached) {
+                compiled = cached.compiled;
+                if (compiled == null) {
+                    try {
+                        compiled = RunMetrics.time("model.compile", () -> CompiledQualityModel.compile(qmLocation));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Unable to read quality model " + qmLocation, e);
+                    }
+                    cached.compiled = compiled;
+                }
+            }
+        }
+        return compiled;
+    }
+
+    private static CachedModel getCachedModel(Path qmLocation) {
+        Path key = qmLocation.toAbsolutePath().normalize();
+        long lastModified = lastModified(key);
+        return CACHE.compute(key, (path, cached) -> {
+            if (cached != null && cached.lastModified == lastModified) {
+                return cached;
+            }
+            LOGGER.info("Importing quality model " + path);
+            return RunMetrics.time("model.import",
+                () -> new CachedModel(new QualityModelImport(path).importQualityModel(), lastModified));
+        });
+    }
+
+    private static long lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path).toMillis();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read quality model " + path, e);
+        }
+    }
+
+    private static class CachedModel {
+        private final QualityModel prototype;
+        private final long lastModified;
+        private final Map<String, Diagnostic> diagnostics;
+        private final Map<String, String> diagnosticTools;
+        private volatile CompiledQualityModel compiled;
+
+        private CachedModel(QualityModel prototype, long lastModified) {
+            this.prototype = prototype;
+            this.lastModified = lastModified;
+
+            Map<String, Diagnostic> diagnostics = new HashMap<>();
+            Map<String, String> diagnosticTools = new HashMap<>();
+            for (ModelNode x : prototype.getDiagnostics().values()) {
+                Diagnostic diag = (Diagnostic) x;
+                diagnostics.put(diag.getName(), diag);
+                diagnosticTools.put(diag.getName(), diag.getToolName());
+            }
+            this.diagnostics = Collections.unmodifiableMap(diagnostics);
+            this.diagnosticTools = Collections.unmodifiableMap(diagnosticTools);
+        }
+    }
+}
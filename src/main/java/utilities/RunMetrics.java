@@ -0,0 +1,239 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Timers and counters of the current run, e.g. time spent in tool processes, parsing and scoring, findings
+ * parsed and tool exit codes. Stages are timed around a body, or started and closed in a finally block:
+ * <pre>
+ *     Map&lt;String, Diagnostic&gt; diagnostics = RunMetrics.time("tool.cppcheck", () -&gt; runTool(projectDir, tool));
+ *
+ *     RunMetrics.Stage stage = RunMetrics.start("parse.cppcheck");
+ *     try { ... } finally { stage.close(); }
+ * </pre>
+ * Every stage records its count, total and maximum wall time and, where the JVM supports it, the bytes the
+ * timing thread allocated meanwhile (an estimate: work the stage hands to other threads is not included).
+ *
+ * Recording is cheap and always on. At the end of a run write writes the metrics to the metrics.directory
+ * property as a json summary and, with metrics.prometheus=true, in the Prometheus text format.
+ */
+public class RunMetrics {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RunMetrics.class);
+
+    private static final Map<String, StageMetrics> STAGES = new ConcurrentHashMap<>();
+    private static final Map<String, LongAdder> COUNTERS = new ConcurrentHashMap<>();
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+    private static final boolean ALLOCATION_SUPPORTED = allocationSupported();
+
+    /**
+     * Starts timing a stage on the current thread, stopped by closing the returned Stage.
+     */
+    public static Stage start(String stage) {
+        return new Stage(stage);
+    }
+
+    /**
+     * Runs body as a stage of the current thread. The stage is recorded whether body returns or throws.
+     *
+     * @return what body returned
+     * @throws E what body threw
+     */
+    public static <T, E extends Exception> T time(String stage, Body<T, E> body) throws E {
+        Stage running = start(stage);
+        try {
+            return body.run();
+        } finally {
+            running.close();
+        }
+    }
+
+    public static void increment(String counter) {
+        add(counter, 1);
+    }
+
+    public static void add(String counter, long delta) {
+        COUNTERS.computeIfAbsent(counter, k -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Counts a subprocess exit code, e.g. as subprocess.exit.0
+     */
+    public static void exitCode(int exitCode) {
+        increment("subprocess.exit." + exitCode);
+    }
+
+    /**
+     * Forget everything recorded so far. Called at the start of every evaluation, derivation and server run, so
+     * the metrics written at its end do not include earlier runs in the same JVM.
+     */
+    public static void reset() {
+        STAGES.clear();
+        COUNTERS.clear();
+    }
+
+    /**
+     * @return the metrics recorded so far as a json object with "stages" and "counters"
+     */
+    public static ObjectNode toJson() {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode root = mapper.createObjectNode();
+        root.put("timestamp", new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ssZ").format(new Date()));
+        ObjectNode stages = root.putObject("stages");
+        new TreeMap<>(STAGES).forEach((name, stage) -> {
+            ObjectNode node = stages.putObject(name);
+            node.put("count", stage.count.sum());
+            node.put("total_seconds", stage.nanos.sum() / 1e9);
+            node.put("max_seconds", stage.maxNanos.get() / 1e9);
+            if (ALLOCATION_SUPPORTED) {
+                node.put("allocated_bytes", stage.allocatedBytes.sum());
+            }
+        });
+        ObjectNode counters = root.putObject("counters");
+        new TreeMap<>(COUNTERS).forEach((name, counter) -> counters.put(name, counter.sum()));
+        return root;
+    }
+
+    /**
+     * Writes the metrics recorded so far in the Prometheus text exposition format.
+     */
+    public static void writePrometheus(Writer writer) throws IOException {
+        writer.write("# TYPE pique_stage_seconds_total counter\n");
+        for (Map.Entry<String, StageMetrics> stage : new TreeMap<>(STAGES).entrySet()) {
+            writer.write("pique_stage_seconds_total{stage=\"" + stage.getKey() + "\"} " + stage.getValue().nanos.sum() / 1e9 + "\n");
+        }
+        writer.write("# TYPE pique_stage_count_total counter\n");
+        for (Map.Entry<String, StageMetrics> stage : new TreeMap<>(STAGES).entrySet()) {
+            writer.write("pique_stage_count_total{stage=\"" + stage.getKey() + "\"} " + stage.getValue().count.sum() + "\n");
+        }
+        if (ALLOCATION_SUPPORTED) {
+            writer.write("# TYPE pique_stage_allocated_bytes_total counter\n");
+            for (Map.Entry<String, StageMetrics> stage : new TreeMap<>(STAGES).entrySet()) {
+                writer.write("pique_stage_allocated_bytes_total{stage=\"" + stage.getKey() + "\"} " + stage.getValue().allocatedBytes.sum() + "\n");
+            }
+        }
+        writer.write("# TYPE pique_events_total counter\n");
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(COUNTERS).entrySet()) {
+            writer.write("pique_events_total{event=\"" + counter.getKey() + "\"} " + counter.getValue().sum() + "\n");
+        }
+    }
+
+    /**
+     * Writes run-&lt;timestamp&gt;.json, and metrics.prom if enabled, to the metrics.directory property.
+     * Does nothing if the property is empty.
+     *
+     * @param run name of the run, e.g. evaluation, used in the file names
+     */
+    public static void write(String run) {
+        Path directory = PiqueProperties.getMetricsDirectory();
+        if (directory == null) return;
+        String timestamp = new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        try {
+            Files.createDirectories(directory);
+            Path json = directory.resolve(run + "-" + timestamp + ".json");
+            new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(json.toFile(), toJson());
+            LOGGER.info("Run metrics written to " + json);
+            if (PiqueProperties.writePrometheusMetrics()) {
+                try (Writer writer = Files.newBufferedWriter(directory.resolve(run + ".prom"), StandardCharsets.UTF_8)) {
+                    writePrometheus(writer);
+                }
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to write run metrics to " + directory, e);
+        }
+    }
+
+    private static long allocatedBytes() {
+        return ALLOCATION_SUPPORTED
+            ? ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId())
+            : 0;
+    }
+
+    private static boolean allocationSupported() {
+        try {
+            return THREADS instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemorySupported()
+                && ((com.sun.management.ThreadMXBean) THREADS).isThreadAllocatedMemoryEnabled();
+        } catch (LinkageError | UnsupportedOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Work timed by time, may throw a checked exception.
+     */
+    @FunctionalInterface
+    public interface Body<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * A running stage, recorded when closed.
+     */
+    public static class Stage implements AutoCloseable {
+        private final String name;
+        private final long startNanos = System.nanoTime();
+        private final long startAllocated = allocatedBytes();
+
+        private Stage(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void close() {
+            long nanos = System.nanoTime() - startNanos;
+            StageMetrics stage = STAGES.computeIfAbsent(name, k -> new StageMetrics());
+            stage.count.increment();
+            stage.nanos.add(nanos);
+            stage.maxNanos.accumulate(nanos);
+            stage.allocatedBytes.add(allocatedBytes() - startAllocated);
+        }
+    }
+
+    private static class StageMetrics {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        private final LongAdder allocatedBytes = new LongAdder();
+    }
+}
@@ -0,0 +1,136 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Persistent, content addressed store of tool results (cppcheck xml, flawfinder csv, ...).
+ *
+ * A result is keyed by the path and SHA-256 of the analyzed file, the SHA-256 of the tool binary or script and
+ * the command line flags the tool was run with. When none of those changed the tool does not need to run again,
+ * the stored result is copied to where the tool would have written it.
+ *
+ * The cache lives in the directory named by the tool.cache.directory property, leaving the property empty
+ * disables it. Entries are written to a temp file first and moved into place, so concurrent evaluations never
+ * see a partially written result.
+ */
+public class ToolResultCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ToolResultCache.class);
+
+    // tool binaries are large and rarely change, only hash them again when their timestamp moves
+    private static final Map<Path, String[]> TOOL_VERSIONS = new ConcurrentHashMap<>();
+
+    public static boolean isEnabled() {
+        return getCacheDirectory() != null;
+    }
+
+    /**
+     * @param toolName name of the tool, e.g. cppcheck
+     * @param toolBinary path to the tool binary or script
+     * @param flags command line flags that influence the result, excluding input and output paths
+     * @param input the analyzed file
+     * @return the cache key
+     * @throws IOException if the input or tool binary can not be read
+     */
+    public static String key(String toolName, Path toolBinary, String[] flags, Path input) throws IOException {
+        // the input path is part of the key because the tools echo it into their reports
+        return HelperFunctions.sha256(toolName, toolVersion(toolBinary), String.join(" ", flags),
+            input.toString(), HelperFunctions.sha256(input));
+    }
+
+    /**
+     * Copy a cached result to target.
+     *
+     * @param key cache key, see key()
+     * @param target where the tool would have written its result
+     * @return true on a cache hit, false if there is no entry for the key or the cache is disabled
+     */
+    public static boolean restore(String key, File target) {
+        if (!isEnabled()) return false;
+        Path entry = entry(key, target);
+        if (!Files.isRegularFile(entry)) return false;
+        try {
+            target.getParentFile().mkdirs();
+            Files.copy(entry, target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            LOGGER.warn("Unable to restore cached tool result " + entry, e);
+            return false;
+        }
+    }
+
+    /**
+     * Store a result produced by a tool.
+     *
+     * @param key cache key, see key()
+     * @param result the file the tool wrote
+     */
+    public static void store(String key, File result) {
+        if (!isEnabled() || !result.isFile()) return;
+        Path entry = entry(key, result);
+        try {
+            Files.createDirectories(entry.getParent());
+            Path temp = Files.createTempFile(entry.getParent(), key, ".tmp");
+            Files.copy(result.toPath(), temp, StandardCopyOption.REPLACE_EXISTING);
+            try {
+                Files.move(temp, entry, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            LOGGER.warn("Unable to cache tool result " + result, e);
+        }
+    }
+
+    private static Path entry(String key, File result) {
+        String extension = result.getName().substring(result.getName().lastIndexOf('.') + 1);
+        return getCacheDirectory().resolve(key.substring(0, 2)).resolve(key + "." + extension);
+    }
+
+    private static Path getCacheDirectory() {
+        return PiqueProperties.getConfiguration().getToolCacheDirectory();
+    }
+
+    private static String toolVersion(Path toolBinary) throws IOException {
+        Path binary = toolBinary.toAbsolutePath().normalize();
+        String lastModified = Files.getLastModifiedTime(binary).toString();
+        String[] cached = TOOL_VERSIONS.get(binary);
+        if (cached == null || !cached[0].equals(lastModified)) {
+            cached = new String[]{lastModified, HelperFunctions.sha256(binary)};
+            TOOL_VERSIONS.put(binary, cached);
+        }
+        return cached[1];
+    }
+}
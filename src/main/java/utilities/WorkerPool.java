@@ -0,0 +1,115 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed size pool of worker threads used to evaluate several projects at once.
+ * Every submitted task gets its own timeout, counted from the moment a worker picks it up
+ * (not from submission), so a long queue does not eat into the budget of the projects waiting in it.
+ * A task that runs past its timeout is cancelled and its worker thread interrupted.
+ */
+public class WorkerPool implements AutoCloseable {
+
+    private final ExecutorService workers;
+    private final ScheduledExecutorService watchdog;
+    private final long timeoutSeconds;
+
+    /**
+     * @param threads number of worker threads, at least 1
+     * @param timeoutSeconds per task timeout in seconds, 0 or less disables the timeout
+     * @param name prefix used when naming the worker threads
+     */
+    public WorkerPool(int threads, long timeoutSeconds, String name) {
+        this.workers = Executors.newFixedThreadPool(Math.max(1, threads), namedThreads(name));
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(namedThreads(name + "-watchdog"));
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Queue a task on the pool.
+     *
+     * @param task work to run
+     * @return future of the task. Its get() throws a CancellationException if the task timed out.
+     */
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<T>(task) {
+            @Override
+            public void run() {
+                ScheduledFuture<?> timer = null;
+                if (timeoutSeconds > 0) {
+                    timer = watchdog.schedule(() -> cancel(true), timeoutSeconds, TimeUnit.SECONDS);
+                }
+                try {
+                    super.run();
+                } finally {
+                    if (timer != null) timer.cancel(false);
+                    // do not leak a late interrupt into the next task run by this worker
+                    Thread.interrupted();
+                }
+            }
+        };
+        workers.execute(future);
+        return future;
+    }
+
+    public long getTimeoutSeconds() {
+        return timeoutSeconds;
+    }
+
+    /**
+     * Stop accepting tasks, let the queued ones finish and release the threads.
+     */
+    @Override
+    public void close() {
+        workers.shutdown();
+        try {
+            workers.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        } finally {
+            watchdog.shutdownNow();
+        }
+    }
+
+    private static ThreadFactory namedThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
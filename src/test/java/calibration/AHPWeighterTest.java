@@ -0,0 +1,90 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package calibration;
+
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+
+import pique.calibration.WeightResult;
+import pique.model.QualityModel;
+import pique.model.QualityModelImport;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class AHPWeighterTest {
+
+    @Test
+    public void testConsistentMatrix(){
+        double[] expected = {0.5, 0.3, 0.2};
+        double[][] matrix = new double[3][3];
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                matrix[i][j] = expected[i] / expected[j];
+            }
+        }
+
+        double[] weights = AHPWeighter.principalEigenvector(matrix);
+
+        assertArrayEquals(expected, weights, 1e-12);
+        assertEquals(0.0, AHPWeighter.consistencyRatio(matrix, weights), 1e-12);
+        assertArrayEquals(new double[]{0.75, 0.25}, AHPWeighter.principalEigenvector(new double[][]{{1, 3}, {1.0 / 3, 1}}), 1e-12);
+    }
+
+    @Test
+    public void testInconsistentMatrix(){
+        // a > b, b > c but c > a
+        double[][] matrix = {{1, 3, 1.0 / 3}, {1.0 / 3, 1, 3}, {3, 1.0 / 3, 1}};
+
+        assertTrue(AHPWeighter.consistencyRatio(matrix, AHPWeighter.principalEigenvector(matrix)) > 0.1);
+    }
+
+    @Test
+    public void testElicitateWeights(){
+        QualityModel qualityModel = new QualityModelImport(Paths.get("out/CVendorQualityModel.json")).importQualityModel();
+
+        Set<WeightResult> weights = new AHPWeighter(Paths.get("src/main/resources/comparisonMatrices"), null)
+            .elicitateWeights(qualityModel);
+
+        Map<String, BigDecimal> integrity = null;
+        Map<String, BigDecimal> incorrectCalculation = null;
+        for (WeightResult weightResult : weights) {
+            if (weightResult.getName().equals("Integrity")) integrity = weightResult.getWeights();
+            if (weightResult.getName().equals("CWE-682 Incorrect_calculation")) incorrectCalculation = weightResult.getWeights();
+        }
+
+        // Integrity.csv rates OS command injection above all other children
+        assertEquals(4, integrity.size());
+        assertEquals(0.6188, integrity.get("CWE-77 OS_command_injection").doubleValue(), 1e-4);
+        assertEquals(1.0, integrity.values().stream().mapToDouble(BigDecimal::doubleValue).sum(), 1e-12);
+        // no matrix, weighted equally
+        assertEquals(5, incorrectCalculation.size());
+        assertEquals(0.2, incorrectCalculation.get("CWE-682").doubleValue(), 1e-12);
+    }
+}
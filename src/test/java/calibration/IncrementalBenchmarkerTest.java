@@ -0,0 +1,151 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package calibration;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import pique.analysis.ITool;
+import pique.analysis.Tool;
+import pique.calibration.MeanSDBenchmarker;
+import pique.model.Diagnostic;
+import pique.model.Finding;
+import pique.model.QualityModel;
+import pique.model.QualityModelImport;
+import pique.utility.BigDecimalWithContext;
+import utilities.QualityModelCache;
+
+import static org.junit.Assert.assertEquals;
+
+public class IncrementalBenchmarkerTest {
+
+    private static final Path TEST_MODEL = Paths.get("src/test/resources/qualityModels/compiledTestModel.json");
+
+    @Test
+    public void testMeanSDThresholds(){
+        Map<String, IncrementalBenchmarker.StoredProject> projects = new TreeMap<>();
+        projects.put("a.c", project("measure", 2.0));
+        projects.put("b.c", project("measure", 4.0));
+        projects.put("c.c", project("measure", 4.0));
+        projects.put("d.c", project("measure", 6.0));
+
+        // mean 4, population sd sqrt(2)
+        BigDecimal[] thresholds = IncrementalBenchmarker.meanSDThresholds(projects).get("measure");
+
+        assertEquals(4.0 - Math.sqrt(2.0), thresholds[0].doubleValue(), 1e-12);
+        assertEquals(4.0 + Math.sqrt(2.0), thresholds[1].doubleValue(), 1e-12);
+    }
+
+    @Test
+    public void testLowerThresholdNotNegative(){
+        Map<String, IncrementalBenchmarker.StoredProject> projects = new TreeMap<>();
+        projects.put("a.c", project("measure", 0.0));
+        projects.put("b.c", project("measure", 0.0));
+        projects.put("c.c", project("measure", 9.0));
+
+        BigDecimal[] thresholds = IncrementalBenchmarker.meanSDThresholds(projects).get("measure");
+
+        assertEquals(0, thresholds[0].signum());
+    }
+
+    @Test
+    public void testSameThresholdsAsMeanSDBenchmarker() throws IOException {
+        Path benchmarkRepository = Files.createTempDirectory("benchmark");
+        for (int p = 1; p <= 5; p++) {
+            Files.createFile(benchmarkRepository.resolve("project" + p + ".c"));
+        }
+        Set<ITool> tools = new HashSet<>(Arrays.asList(
+            new FixedFindingsTool("cppcheck", "uninitvar", 1), new FixedFindingsTool("flawfinder", "FF1004", 3)));
+
+        Map<String, BigDecimal[]> expected = new MeanSDBenchmarker()
+            .deriveThresholds(benchmarkRepository, blankModel(), tools, "");
+        Map<String, BigDecimal[]> actual = new IncrementalBenchmarker(Files.createTempDirectory("measures").resolve("measures.json"), 2)
+            .deriveThresholds(benchmarkRepository, blankModel(), tools, "fingerprint");
+
+        assertEquals(expected.keySet(), actual.keySet());
+        expected.forEach((measure, thresholds) -> {
+            assertEquals(measure, thresholds[0].doubleValue(), actual.get(measure)[0].doubleValue(), 1e-9);
+            assertEquals(measure, thresholds[1].doubleValue(), actual.get(measure)[1].doubleValue(), 1e-9);
+        });
+    }
+
+    private static QualityModel blankModel() throws IOException {
+        return new QualityModelImport(TEST_MODEL).importQualityModel();
+    }
+
+    private static IncrementalBenchmarker.StoredProject project(String measure, double value){
+        Map<String, BigDecimal> measures = new HashMap<>();
+        measures.put(measure, new BigDecimalWithContext(value));
+        return new IncrementalBenchmarker.StoredProject("", measures);
+    }
+
+    /**
+     * Reports findings of one diagnostic, findingsPerProject times the square of the number in the project's file name.
+     */
+    private static class FixedFindingsTool extends Tool implements ITool {
+        private final String diagnostic;
+        private final int findingsPerProject;
+
+        private FixedFindingsTool(String name, String diagnostic, int findingsPerProject) {
+            super(name, Paths.get(name));
+            this.diagnostic = diagnostic;
+            this.findingsPerProject = findingsPerProject;
+        }
+
+        @Override
+        public Path analyze(Path projectLocation) {
+            return projectLocation;
+        }
+
+        @Override
+        public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
+            int project = Integer.parseInt(toolResults.getFileName().toString().replaceAll("\\D", ""));
+            Diagnostic diag = QualityModelCache.getDiagnostics(TEST_MODEL, getName()).get(diagnostic);
+            for (int i = 0; i < project * project * findingsPerProject; i++) {
+                Finding finding = new Finding(toolResults.toString(), i + 1, 1, 1);
+                finding.setName(diagnostic + "-" + i);
+                diag.setChild(finding);
+            }
+            Map<String, Diagnostic> diagnostics = new HashMap<>();
+            diagnostics.put(diagnostic, diag);
+            return diagnostics;
+        }
+
+        @Override
+        public Path initialize(Path toolRoot) {
+            return toolRoot;
+        }
+    }
+}
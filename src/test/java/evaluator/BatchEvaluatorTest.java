@@ -0,0 +1,62 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package evaluator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import pique.utility.BigDecimalWithContext;
+
+import static org.junit.Assert.assertEquals;
+
+public class BatchEvaluatorTest {
+
+    @Test
+    public void testEvaluateMatchesCompiledModel() throws IOException {
+        CompiledQualityModel compiled = CompiledQualityModel.compile(Paths.get("src/test/resources/qualityModels/compiledTestModel.json"));
+        String[] diagnostics = {"uninitvar", "FF1004", "notInTheModel"};
+        double[][] findingCounts = new double[3000][];
+        for (int project = 0; project < findingCounts.length; project++) {
+            findingCounts[project] = new double[]{project % 7, project % 5, 1.0};
+        }
+
+        BatchEvaluator.Result scores = new BatchEvaluator(compiled).evaluate(diagnostics, findingCounts);
+
+        assertEquals(findingCounts.length, scores.getProjects());
+        for (int project = 0; project < findingCounts.length; project++) {
+            Map<String, BigDecimal> diagnosticValues = new HashMap<>();
+            diagnosticValues.put("uninitvar", new BigDecimalWithContext(findingCounts[project][0]));
+            diagnosticValues.put("FF1004", new BigDecimalWithContext(findingCounts[project][1]));
+            BigDecimal[] expected = compiled.evaluate(diagnosticValues);
+            for (int node = 0; node < compiled.size(); node++) {
+                assertEquals(expected[node].doubleValue(), scores.getValue(node, project), 1e-12);
+            }
+        }
+    }
+}
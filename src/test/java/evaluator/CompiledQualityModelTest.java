@@ -0,0 +1,176 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package evaluator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+
+import pique.evaluation.Project;
+import pique.model.Finding;
+import pique.model.ModelNode;
+import pique.model.QualityModel;
+import pique.model.QualityModelImport;
+import pique.utility.BigDecimalWithContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CompiledQualityModelTest {
+
+    private static final Path TEST_MODEL = Paths.get("src/test/resources/qualityModels/compiledTestModel.json");
+
+    @Test
+    public void testEvaluate() throws IOException {
+        CompiledQualityModel compiled = CompiledQualityModel.compile(TEST_MODEL);
+
+        // tqi, 2 aspects, 1 shared factor, 2 measures, 2 diagnostics shared between the measures
+        assertEquals(8, compiled.size());
+        assertEquals(CompiledQualityModel.TQI, compiled.getLevel(compiled.size() - 1));
+        for (int i = 0; i < compiled.size(); i++) {
+            for (int child : compiled.children[i]) {
+                assertTrue("children come before their parents", child < i);
+            }
+        }
+
+        Map<String, BigDecimal> diagnosticValues = new HashMap<>();
+        diagnosticValues.put("FF1004", new BigDecimalWithContext(1));
+        BigDecimal[] values = compiled.evaluate(diagnosticValues);
+
+        // CWE-1 = 0.5 * 1 = 0.5, negative with thresholds [0, 2] so its utility is (0.5 - 2) / (0 - 2) = 0.75
+        // CWE-2 = 1, utility (1 - 1) / (0 - 1) = 0, Factor A = 0.75 * 0.75 - 0.25 * 0 = 0.5625
+        // Aspect A = 0.5625, Aspect B = max(0, -0.5625) = 0, tqi = 0.6 * 0.5625 + 0.4 * 0 = 0.3375
+        assertEquals(0.3375, values[compiled.size() - 1].doubleValue(), 1e-12);
+    }
+
+    @Test
+    public void testMatchesTreeEvaluation() throws IOException {
+        int[][] findings = {{0, 0}, {0, 1}, {2, 4}, {1, 3}, {5, 0}};
+        for (int[] counts : findings) {
+            Map<String, Integer> findingCounts = new HashMap<>();
+            findingCounts.put("uninitvar", counts[0]);
+            findingCounts.put("FF1004", counts[1]);
+            assertMatchesTreeEvaluation(TEST_MODEL, findingCounts);
+        }
+    }
+
+    @Test
+    public void testDerivedModelMatchesTreeEvaluation() throws IOException {
+        // measures with and without findings, derived thresholds and [0, 0] thresholds
+        Map<String, Integer> findingCounts = new HashMap<>();
+        findingCounts.put("uninitvar", 3);
+        findingCounts.put("FF1004", 1);
+        findingCounts.put("getsCalled", 2);
+        findingCounts.put("memsetZeroBytes", 1);
+        assertMatchesTreeEvaluation(Paths.get("out/CVendorQualityModel.json"), findingCounts);
+    }
+
+    /**
+     * Evaluates the model node by node with pique, as SingleProjectEvaluator does without evaluation.compiled, and
+     * checks the compiled model computes the same value for every measure, factor, aspect and the tqi.
+     */
+    private static void assertMatchesTreeEvaluation(Path qmLocation, Map<String, Integer> findingCounts) throws IOException {
+        QualityModel qualityModel = new QualityModelImport(qmLocation).importQualityModel();
+        Project project = new Project("project", qmLocation, qualityModel);
+        findingCounts.forEach((diagnostic, count) -> {
+            for (int i = 0; i < count; i++) {
+                Finding finding = new Finding("src/module.c", i + 1, 1, 1);
+                finding.setName(diagnostic + "-" + i);
+                project.getQualityModel().getDiagnostic(diagnostic).setChild(finding);
+            }
+        });
+        BigDecimal tqi = project.evaluateTqi();
+
+        Map<String, BigDecimal> diagnosticValues = new HashMap<>();
+        findingCounts.keySet().forEach(diagnostic ->
+            diagnosticValues.put(diagnostic, project.getQualityModel().getDiagnostic(diagnostic).getValue()));
+        CompiledQualityModel compiled = CompiledQualityModel.compile(qmLocation);
+        BigDecimal[] values = compiled.evaluate(diagnosticValues);
+
+        assertEquals(tqi.doubleValue(), values[compiled.size() - 1].doubleValue(), 1e-12);
+        for (int i = 0; i < compiled.size(); i++) {
+            ModelNode node;
+            switch (compiled.getLevel(i)) {
+                case CompiledQualityModel.QUALITY_ASPECT: node = project.getQualityModel().getQualityAspect(compiled.getName(i)); break;
+                case CompiledQualityModel.PRODUCT_FACTOR: node = project.getQualityModel().getProductFactor(compiled.getName(i)); break;
+                case CompiledQualityModel.MEASURE: node = project.getQualityModel().getMeasure(compiled.getName(i)); break;
+                default: continue;
+            }
+            assertEquals(compiled.getName(i), node.getValue().doubleValue(), values[i].doubleValue(), 1e-12);
+        }
+    }
+
+    @Test
+    public void testMissingDiagnosticsAreZero() throws IOException {
+        CompiledQualityModel compiled = CompiledQualityModel.compile(TEST_MODEL);
+
+        Map<String, BigDecimal> zeros = new HashMap<>();
+        zeros.put("uninitvar", new BigDecimalWithContext(0));
+        zeros.put("FF1004", new BigDecimalWithContext(0));
+        BigDecimal[] values = compiled.evaluate(new HashMap<>());
+        BigDecimal[] expected = compiled.evaluate(zeros);
+
+        for (int i = 0; i < compiled.size(); i++) {
+            assertEquals(0, expected[i].compareTo(values[i]));
+        }
+    }
+
+    @Test
+    public void testRejectsUnknownUtilityFunction() throws IOException {
+        try {
+            CompiledQualityModel.compile(Paths.get("src/test/resources/qualityModels/uncompilableTestModel.json"));
+            fail("expected the measure's utility function to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("utility_function"));
+        }
+    }
+
+    @Test
+    public void testReevaluateMatchesEvaluate() throws IOException {
+        CompiledQualityModel compiled = CompiledQualityModel.compile(TEST_MODEL);
+        Map<String, BigDecimal> previousDiagnosticValues = new HashMap<>();
+        previousDiagnosticValues.put("uninitvar", new BigDecimalWithContext(2));
+        previousDiagnosticValues.put("FF1004", new BigDecimalWithContext(1));
+        BigDecimal[] previous = compiled.evaluate(previousDiagnosticValues);
+        BigDecimal previousTqi = previous[compiled.size() - 1];
+
+        Map<String, BigDecimal> diagnosticValues = new HashMap<>();
+        diagnosticValues.put("uninitvar", new BigDecimalWithContext(2));
+        diagnosticValues.put("FF1004", new BigDecimalWithContext(3));
+        BigDecimal[] reevaluated = compiled.reevaluate(previous, diagnosticValues);
+        BigDecimal[] evaluated = compiled.evaluate(diagnosticValues);
+
+        for (int i = 0; i < compiled.size(); i++) {
+            assertEquals(0, evaluated[i].compareTo(reevaluated[i]));
+        }
+        // the previous values are left alone
+        assertEquals(0, previousTqi.compareTo(previous[compiled.size() - 1]));
+    }
+}
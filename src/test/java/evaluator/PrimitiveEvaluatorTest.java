@@ -0,0 +1,92 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package evaluator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import pique.evaluation.Evaluator;
+import pique.evaluation.Project;
+import pique.model.Diagnostic;
+import pique.model.Finding;
+import pique.model.ModelNode;
+import pique.model.QualityModel;
+import pique.model.QualityModelImport;
+
+import static org.junit.Assert.assertTrue;
+
+public class PrimitiveEvaluatorTest {
+
+    private static final Path DERIVED_MODEL = Paths.get("out/CVendorQualityModel.json");
+
+    @Test
+    public void testWithinErrorBoundOfBigDecimalEvaluators() throws IOException {
+        QualityModel qualityModel = new QualityModelImport(DERIVED_MODEL).importQualityModel();
+        Project project = new Project("project", DERIVED_MODEL, qualityModel);
+        Random random = new Random(7);
+        for (Diagnostic diagnostic : project.getQualityModel().getDiagnostics().values()) {
+            int count = random.nextInt(6);
+            for (int i = 0; i < count; i++) {
+                Finding finding = new Finding("src/module.c", i + 1, 1, 1);
+                finding.setName(diagnostic.getName() + "-" + i);
+                diagnostic.setChild(finding);
+            }
+        }
+        project.evaluateTqi();
+
+        List<ModelNode> weightedAverages = new ArrayList<>(project.getQualityModel().getMeasures().values());
+        weightedAverages.addAll(project.getQualityModel().getProductFactors().values());
+        weightedAverages.add(project.getQualityModel().getTqi());
+        for (ModelNode node : weightedAverages) {
+            assertWithinBound(node, new WeightedAverageEvaluator(false), new PrimitiveWeightedAverageEvaluator());
+        }
+        for (ModelNode node : project.getQualityModel().getQualityAspects().values()) {
+            assertWithinBound(node, new QualityAspectEvaluator(false), new PrimitiveQualityAspectEvaluator());
+        }
+    }
+
+    /**
+     * Checks the bound documented on WeightedAverageEvaluator.primitiveWeightedSum: (n + 2) * 2^-53 * sum(|value * weight|)
+     * for a node with n children.
+     */
+    private static void assertWithinBound(ModelNode node, Evaluator bigDecimal, Evaluator primitive) {
+        double absoluteSum = 0.0;
+        for (ModelNode child : node.getChildren().values()) {
+            absoluteSum += Math.abs(child.getValue().doubleValue() * node.getWeight(child.getName()).doubleValue());
+        }
+        double bound = (node.getChildren().size() + 2) * Math.ulp(1.0) / 2 * absoluteSum;
+
+        BigDecimal expected = bigDecimal.evaluate(node);
+        BigDecimal actual = primitive.evaluate(node);
+        double error = expected.subtract(actual).abs().doubleValue();
+        assertTrue(node.getName() + " differs by " + error + ", bound " + bound, error <= bound);
+    }
+}
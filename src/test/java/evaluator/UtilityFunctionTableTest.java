@@ -0,0 +1,71 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package evaluator;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import pique.model.Measure;
+import pique.model.QualityModel;
+import pique.model.QualityModelImport;
+import pique.utility.BigDecimalWithContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class UtilityFunctionTableTest {
+
+    @Test
+    public void testMatchesUtilityFunction() throws IOException {
+        Path qmLocation = Paths.get("out/CVendorQualityModel.json");
+        QualityModel qualityModel = new QualityModelImport(qmLocation).importQualityModel();
+        CompiledQualityModel compiled = CompiledQualityModel.compile(qmLocation);
+        UtilityFunctionTable table = compiled.getUtilityFunctions();
+        UtilityFunction utilityFunction = new UtilityFunction();
+
+        int measures = 0;
+        double[] values = {0.0, 0.5, 1.0, 3.0, 250.0};
+        for (int i = 0; i < compiled.size(); i++) {
+            if (compiled.getLevel(i) != CompiledQualityModel.MEASURE) {
+                assertFalse(table.has(i));
+                continue;
+            }
+            measures++;
+            Measure measure = qualityModel.getMeasure(compiled.getName(i));
+            double[] column = values.clone();
+            table.apply(i, column, 0, column.length);
+            for (int v = 0; v < values.length; v++) {
+                BigDecimal expected = utilityFunction.utilityFunction(new BigDecimalWithContext(values[v]), measure.getThresholds(), measure.isPositive());
+                assertEquals(expected.doubleValue(), table.utility(i, new BigDecimalWithContext(values[v])).doubleValue(), 1e-12);
+                assertEquals(expected.doubleValue(), table.utility(i, values[v]), 1e-9);
+                assertEquals(expected.doubleValue(), column[v], 1e-9);
+            }
+        }
+        assertEquals(qualityModel.getMeasures().size(), measures);
+    }
+}
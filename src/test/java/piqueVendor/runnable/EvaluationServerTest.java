@@ -0,0 +1,95 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package piqueVendor.runnable;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EvaluationServerTest {
+
+    @Test
+    public void testBusyWhenQueueIsFull() throws Exception {
+        File project = File.createTempFile("project", ".c");
+        project.deleteOnExit();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        try (EvaluationServer server = new EvaluationServer(0, 1, 0, 0, projectPath -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return Paths.get("results.json");
+        })) {
+            CompletableFuture<String> first = CompletableFuture.supplyAsync(() -> server.process("EVAL " + project));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            assertEquals("BUSY", server.process("EVAL " + project));
+
+            release.countDown();
+            assertEquals("OK " + Paths.get("results.json").toAbsolutePath(), first.get(10, TimeUnit.SECONDS));
+            assertEquals("OK " + Paths.get("results.json").toAbsolutePath(), server.process("EVAL " + project));
+        }
+    }
+
+    @Test
+    public void testRequests() throws Exception {
+        try (EvaluationServer server = new EvaluationServer(0, 1, 0, 0, projectPath -> {
+            throw new IllegalStateException("tool failed");
+        })) {
+            assertEquals("PONG", server.process("PING"));
+            assertTrue(server.process("EVAL missing/project.c").startsWith("ERROR no such file"));
+
+            File project = File.createTempFile("project", ".c");
+            project.deleteOnExit();
+            assertEquals("ERROR tool failed", server.process("EVAL " + project));
+            assertTrue(server.process("FOO").startsWith("ERROR unknown request"));
+            assertEquals("BYE", server.process("SHUTDOWN"));
+        }
+    }
+
+    @Test
+    public void testJobResultsDirectories() {
+        Path resultsDir = Paths.get("out");
+        Path first = EvaluationServer.jobResultsDirectory(resultsDir, Paths.get("a/main.c"));
+        Path second = EvaluationServer.jobResultsDirectory(resultsDir, Paths.get("b/main.c"));
+
+        assertFalse(first.equals(second));
+        assertEquals(first, EvaluationServer.jobResultsDirectory(resultsDir, Paths.get("a/../a/main.c")));
+        assertEquals(resultsDir.resolve("server"), first.getParent());
+        assertTrue(first.getFileName().toString().startsWith("main.c-"));
+    }
+}
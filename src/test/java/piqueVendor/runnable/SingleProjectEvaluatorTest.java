@@ -0,0 +1,186 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package piqueVendor.runnable;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import evaluator.CompiledQualityModel;
+import pique.analysis.ITool;
+import pique.analysis.Tool;
+import pique.model.Diagnostic;
+import pique.model.Finding;
+import utilities.PiqueConfiguration;
+import utilities.QualityModelCache;
+import utilities.WorkerPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SingleProjectEvaluatorTest {
+
+    private static final Path TEST_MODEL = Paths.get("src/test/resources/qualityModels/compiledTestModel.json");
+
+    @Test
+    public void testBatchMatchesPerProjectEvaluation() throws IOException {
+        Path projectRoot = Files.createTempDirectory("projects");
+        List<Path> projects = new ArrayList<>();
+        for (int p = 0; p < 6; p++) {
+            projects.add(Files.createFile(projectRoot.resolve("project" + p + ".c")));
+        }
+        Set<ITool> tools = new HashSet<>(Arrays.asList(
+            new FixedFindingsTool("cppcheck", "uninitvar", 1), new FixedFindingsTool("flawfinder", "FF1004", 2)));
+        SingleProjectEvaluator evaluator = new SingleProjectEvaluator(
+            PiqueConfiguration.load("src/test/resources/piqueVendorTest.properties"), false);
+
+        Map<Path, Path> batchResults;
+        try (WorkerPool pool = new WorkerPool(2, 0, "test")) {
+            batchResults = evaluator.runBatchEvaluator(projects, Files.createTempDirectory("batch"), TEST_MODEL, tools, pool);
+        }
+
+        assertEquals(projects.size(), batchResults.size());
+        CompiledQualityModel compiled = QualityModelCache.getCompiledModel(TEST_MODEL);
+        Path perProjectResultsDir = Files.createTempDirectory("perProject");
+        for (Path project : projects) {
+            // evaluation.compiled is off in the test properties, so this evaluates the model node by node
+            BigDecimal[] expected = compiled.readValues(evaluator.runEvaluator(project, perProjectResultsDir, TEST_MODEL, tools));
+            BigDecimal[] actual = compiled.readValues(batchResults.get(project));
+            for (int i = 0; i < compiled.size(); i++) {
+                assertEquals(project + " " + compiled.getName(i), expected[i].doubleValue(), actual[i].doubleValue(), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testPreviousResultsOfSameScoringOnly() throws IOException {
+        Path projectRoot = Files.createTempDirectory("projects");
+        Path project1 = Files.createFile(projectRoot.resolve("project1.c"));
+        Path project12 = Files.createFile(projectRoot.resolve("project12.c"));
+        Path project2 = Files.createFile(projectRoot.resolve("project2.c"));
+        Set<ITool> tools = new HashSet<>(Arrays.asList(new FixedFindingsTool("flawfinder", "FF1004", 1)));
+        Path previousResultsDir = Files.createTempDirectory("previous");
+
+        SingleProjectEvaluator compiled = new SingleProjectEvaluator(configuration(true, null), false);
+        Path export1 = compiled.runEvaluator(project1, previousResultsDir, TEST_MODEL, tools);
+        Path export12 = compiled.runEvaluator(project12, previousResultsDir, TEST_MODEL, tools);
+        compiled.runEvaluator(project2, previousResultsDir, TEST_MODEL, tools);
+        // evaluated again node by node, its compiled export is overwritten
+        new SingleProjectEvaluator(configuration(false, null), false)
+            .runEvaluator(project2, previousResultsDir, TEST_MODEL, tools);
+
+        SingleProjectEvaluator reevaluating = new SingleProjectEvaluator(configuration(true, previousResultsDir), false);
+        String scoring = reevaluating.scoringFingerprint(TEST_MODEL, QualityModelCache.getCompiledModel(TEST_MODEL));
+        assertEquals(export1.getFileName(), reevaluating.findPreviousResults("project1.c", scoring).getFileName());
+        assertEquals(export12.getFileName(), reevaluating.findPreviousResults("project12.c", scoring).getFileName());
+        assertNull(reevaluating.findPreviousResults("project2.c", scoring));
+        assertNull(reevaluating.findPreviousResults("project1", scoring));
+        assertNull(reevaluating.findPreviousResults("project1.c", "compiled double " + scoring));
+    }
+
+    @Test
+    public void testProjectsSharingABaseNameKeepTheirOwnResults() throws IOException {
+        Path projectRoot = Files.createTempDirectory("projects");
+        Path source = Files.createFile(projectRoot.resolve("project1.c"));
+        Path header = Files.createFile(projectRoot.resolve("project1.h"));
+        Set<ITool> tools = new HashSet<>(Arrays.asList(new FixedFindingsTool("flawfinder", "FF1004", 1)));
+        Path resultsDir = Files.createTempDirectory("results");
+        SingleProjectEvaluator evaluator = new SingleProjectEvaluator(configuration(true, null), false);
+
+        Path sourceExport = evaluator.runEvaluator(source, resultsDir, TEST_MODEL, tools);
+        Path headerExport = evaluator.runEvaluator(header, resultsDir, TEST_MODEL, tools);
+        assertFalse(sourceExport.equals(headerExport));
+        assertTrue(Files.exists(sourceExport));
+        assertTrue(Files.exists(headerExport));
+
+        Map<Path, Path> batchResults;
+        try (WorkerPool pool = new WorkerPool(2, 0, "test")) {
+            batchResults = evaluator.runBatchEvaluator(Arrays.asList(source, header), Files.createTempDirectory("batch"), TEST_MODEL, tools, pool);
+        }
+        assertFalse(batchResults.get(source).equals(batchResults.get(header)));
+    }
+
+    private static PiqueConfiguration configuration(boolean compiled, Path previousResults) throws IOException {
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(Paths.get("src/test/resources/piqueVendorTest.properties"))) {
+            properties.load(reader);
+        }
+        properties.setProperty("evaluation.compiled", Boolean.toString(compiled));
+        properties.setProperty("evaluation.previous.results", previousResults == null ? "" : previousResults.toString());
+        return PiqueConfiguration.of(properties);
+    }
+
+    /**
+     * Reports findings of one diagnostic, findingsPerProject times the number in the project's file name.
+     */
+    private static class FixedFindingsTool extends Tool implements ITool {
+        private final String diagnostic;
+        private final int findingsPerProject;
+
+        private FixedFindingsTool(String name, String diagnostic, int findingsPerProject) {
+            super(name, Paths.get(name));
+            this.diagnostic = diagnostic;
+            this.findingsPerProject = findingsPerProject;
+        }
+
+        @Override
+        public Path analyze(Path projectLocation) {
+            return projectLocation;
+        }
+
+        @Override
+        public Map<String, Diagnostic> parseAnalysis(Path toolResults) {
+            int project = Integer.parseInt(toolResults.getFileName().toString().replaceAll("\\D", ""));
+            Diagnostic diag = QualityModelCache.getDiagnostics(TEST_MODEL, getName()).get(diagnostic);
+            for (int i = 0; i < project * findingsPerProject; i++) {
+                Finding finding = new Finding(toolResults.toString(), i + 1, 1, 1);
+                finding.setName(diagnostic + "-" + i);
+                diag.setChild(finding);
+            }
+            Map<String, Diagnostic> diagnostics = new HashMap<>();
+            diagnostics.put(diagnostic, diag);
+            return diagnostics;
+        }
+
+        @Override
+        public Path initialize(Path toolRoot) {
+            return toolRoot;
+        }
+    }
+}
@@ -23,5 +23,210 @@
  */
 package tool;
 
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import pique.analysis.ITool;
+import pique.model.Diagnostic;
+import pique.model.Finding;
+import utilities.PiqueConfiguration;
+import utilities.PiquePropertiesTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
 public class CPPCheckToolWrapperTest {
+
+    private Properties prop;
+
+    public CPPCheckToolWrapperTest(){
+        prop = PiquePropertiesTest.getProperties();
+    }
+
+    @Test
+    public void testParseAnalysis(){
+        CPPCheckToolWrapper cppCheckToolWrapper = new CPPCheckToolWrapper(Paths.get(prop.getProperty("tool.cppcheck.filepath")));
+
+        Map<String, Diagnostic> diagnostics = cppCheckToolWrapper.parseAnalysis(Paths.get("src/test/resources/cppcheck/console--cppcheckOutput.xml"));
+
+        assertEquals(3, diagnostics.size());
+        assertTrue(diagnostics.containsKey("uninitvar"));
+        assertTrue(diagnostics.containsKey("unreadVariable"));
+        // ids the model does not describe are collected under "unknown"
+        assertTrue(diagnostics.containsKey("unknown"));
+    }
+
+    @Test
+    public void testParseAnalysisSingleError(){
+        CPPCheckToolWrapper cppCheckToolWrapper = new CPPCheckToolWrapper(Paths.get(prop.getProperty("tool.cppcheck.filepath")));
+
+        Map<String, Diagnostic> diagnostics = cppCheckToolWrapper.parseAnalysis(Paths.get("src/test/resources/cppcheck/single--cppcheckOutput.xml"));
+
+        assertEquals(1, diagnostics.size());
+        assertTrue(diagnostics.containsKey("uninitvar"));
+    }
+
+    @Test
+    public void testIndexAnalysis(){
+        CPPCheckToolWrapper cppCheckToolWrapper = new CPPCheckToolWrapper(Paths.get(prop.getProperty("tool.cppcheck.filepath")));
+
+        FindingIndex index = cppCheckToolWrapper.indexAnalysis(Paths.get("src/test/resources/cppcheck/console--cppcheckOutput.xml"));
+
+        assertEquals(4, index.size());
+        // errors at lines 64 and 112
+        List<Finding> findings = index.findings("src/test/resources/benchmark/console.c", 60, 115);
+        assertEquals(2, findings.size());
+        assertEquals(64, findings.get(0).getLineNumber());
+        assertEquals(112, findings.get(1).getLineNumber());
+        assertEquals(9, findings.get(1).getCharacterNumber());
+        assertEquals(1, index.findings("./src/test/resources/benchmark/console.c", 20, 20).size());
+        assertEquals(0, index.findings("src/test/resources/benchmark/other.c").size());
+    }
+
+    @Test
+    public void testParseBatchAnalysis(){
+        CPPCheckToolWrapper cppCheckToolWrapper = new CPPCheckToolWrapper(Paths.get(prop.getProperty("tool.cppcheck.filepath")));
+        Path console = Paths.get("src/test/resources/benchmark/console.c");
+        Path other = Paths.get("src/test/resources/benchmark/other.c");
+        Path clean = Paths.get("src/test/resources/benchmark/clean.c");
+
+        Map<Path, Map<String, Diagnostic>> diagnostics = cppCheckToolWrapper.parseBatchAnalysis(
+            Paths.get("src/test/resources/cppcheck/batch--cppcheckOutput.xml"), Arrays.asList(console, other, clean));
+
+        assertEquals(3, diagnostics.size());
+        assertEquals(2, diagnostics.get(console).size());
+        assertEquals(1, diagnostics.get(console).get("unreadVariable").getChildren().size());
+        // found checking console.c, located in the header it includes
+        assertEquals(2, diagnostics.get(console).get("uninitvar").getChildren().size());
+        // reported as ./src/..., still the same file
+        assertEquals(1, diagnostics.get(other).size());
+        assertTrue(diagnostics.get(other).containsKey("unreadVariable"));
+        // the error without a location belongs to no project
+        assertTrue(diagnostics.get(clean).isEmpty());
+    }
+
+    /**
+     * Two projects define the same function, only the first calls it. Run on its own, the second has an
+     * unusedFunction finding, which one run over both would hide.
+     */
+    @Test
+    public void testBatchMatchesPerProjectRunsOnSharedFunctionNames() throws IOException {
+        Path projectRoot = Files.createTempDirectory("projects");
+        Path caller = Files.write(projectRoot.resolve("caller.c"),
+            Arrays.asList("int helper(void) { return 0; }", "int main(void) { return helper(); }"), StandardCharsets.UTF_8);
+        Path unused = Files.write(projectRoot.resolve("unused.c"),
+            Collections.singletonList("int helper(void) { return 1; }"), StandardCharsets.UTF_8);
+        prop.setProperty("tool.cppcheck.filepath", fakeCppcheck().toString());
+        prop.setProperty("results.directory", Files.createTempDirectory("results").toString() + "/");
+        prop.setProperty("save.benchmark.results", "false");
+        CPPCheckToolWrapper cppCheckToolWrapper = new CPPCheckToolWrapper(Paths.get("cppcheck"), PiqueConfiguration.of(prop));
+        List<Path> projects = Arrays.asList(caller, unused);
+
+        assertTrue(cppCheckToolWrapper.scoresWholeProgramChecks());
+        PrefetchingTool batched = PrefetchingTool.batch(Collections.<ITool>singleton(cppCheckToolWrapper), projects).iterator().next();
+        for (Path project : projects) {
+            Map<String, Diagnostic> perProject = cppCheckToolWrapper.parseAnalysis(cppCheckToolWrapper.analyze(project));
+            Map<String, Diagnostic> batch = batched.parseAnalysis(batched.analyze(project));
+            assertEquals(project.toString(), perProject.keySet(), batch.keySet());
+        }
+        assertFalse(cppCheckToolWrapper.parseAnalysis(cppCheckToolWrapper.analyze(caller)).containsKey("unusedFunction"));
+        assertTrue(cppCheckToolWrapper.parseAnalysis(cppCheckToolWrapper.analyze(unused)).containsKey("unusedFunction"));
+    }
+
+    @Test
+    public void testFilesSharingABaseNameKeepTheirOwnReports() throws IOException {
+        Path projectRoot = Files.createTempDirectory("projects");
+        Path source = Files.write(projectRoot.resolve("foo.c"),
+            Collections.singletonList("int helper(void) { return 1; }"), StandardCharsets.UTF_8);
+        Path header = Files.write(projectRoot.resolve("foo.h"),
+            Collections.singletonList("int other(void);"), StandardCharsets.UTF_8);
+        prop.setProperty("tool.cppcheck.filepath", fakeCppcheck().toString());
+        prop.setProperty("results.directory", Files.createTempDirectory("results").toString() + "/");
+        prop.setProperty("save.benchmark.results", "false");
+        CPPCheckToolWrapper cppCheckToolWrapper = new CPPCheckToolWrapper(Paths.get("cppcheck"), PiqueConfiguration.of(prop));
+
+        Path sourceResults = cppCheckToolWrapper.analyze(source);
+        Path headerResults = cppCheckToolWrapper.analyze(header);
+
+        assertFalse(sourceResults.equals(headerResults));
+        assertTrue(cppCheckToolWrapper.parseAnalysis(sourceResults).containsKey("unusedFunction"));
+        assertFalse(cppCheckToolWrapper.parseAnalysis(headerResults).containsKey("unusedFunction"));
+    }
+
+    @Test
+    public void testKilledRunFailsAnalysis() throws IOException {
+        Path script = Paths.get("target", "fakeCppcheck", "hanging");
+        Files.createDirectories(script.getParent());
+        Files.write(script, Arrays.asList(
+            "#!/bin/sh",
+            "for arg in \"$@\"; do case \"$arg\" in --output-file=*) out=\"${arg#--output-file=}\" ;; esac; done",
+            "echo '<?xml version=\"1.0\" encoding=\"UTF-8\"?><results version=\"2\"><errors>' > \"$out\"",
+            "sleep 10"), StandardCharsets.UTF_8);
+        script.toFile().setExecutable(true);
+        Path project = Files.write(Files.createTempDirectory("projects").resolve("hanging.c"),
+            Collections.singletonList("int main(void) { return 0; }"), StandardCharsets.UTF_8);
+        Path resultsDirectory = Files.createTempDirectory("results");
+        prop.setProperty("tool.cppcheck.filepath", script.toString());
+        prop.setProperty("tool.timeout.seconds", "1");
+        prop.setProperty("results.directory", resultsDirectory.toString() + "/");
+        prop.setProperty("save.benchmark.results", "false");
+        CPPCheckToolWrapper cppCheckToolWrapper = new CPPCheckToolWrapper(Paths.get("cppcheck"), PiqueConfiguration.of(prop));
+
+        try {
+            cppCheckToolWrapper.analyze(project);
+            fail("expected the killed run to fail the analysis");
+        } catch (UncheckedIOException e) {
+            assertTrue(e.getMessage().contains(project.toString()));
+        }
+        // the truncated report would parse as a project without findings
+        assertFalse(Files.exists(resultsDirectory.resolve("hanging.c--cppcheckOutput.xml")));
+    }
+
+    /**
+     * Writes a stand-in for cppcheck that only does its unusedFunction check: helper is reported as unused in
+     * every checked file defining it unless one of the files checked in the same run calls it.
+     *
+     * @return path to the script, relative to the working directory as the wrapper runs it with ./
+     */
+    private static Path fakeCppcheck() throws IOException {
+        Path script = Paths.get("target", "fakeCppcheck", "cppcheck");
+        Files.createDirectories(script.getParent());
+        Files.write(script, Arrays.asList(
+            "#!/bin/sh",
+            "files=''",
+            "for arg in \"$@\"; do",
+            "  case \"$arg\" in",
+            "    --file-list=*) files=\"$files $(cat \"${arg#--file-list=}\")\" ;;",
+            "    --output-file=*) out=\"${arg#--output-file=}\" ;;",
+            "    -*|[0-9]*) ;;",
+            "    *) files=\"$files $arg\" ;;",
+            "  esac",
+            "done",
+            "called=no",
+            "for file in $files; do grep -q 'helper();' \"$file\" && called=yes; done",
+            "{",
+            "  echo '<?xml version=\"1.0\" encoding=\"UTF-8\"?><results version=\"2\"><errors>'",
+            "  for file in $files; do",
+            "    if [ $called = no ] && grep -q 'int helper(void)' \"$file\"; then",
+            "      echo \"<error id=\\\"unusedFunction\\\" severity=\\\"style\\\" msg=\\\"unused\\\" file0=\\\"$file\\\"><location file=\\\"$file\\\" line=\\\"1\\\" column=\\\"5\\\"/></error>\"",
+            "    fi",
+            "  done",
+            "  echo '</errors></results>'",
+            "} > \"$out\""), StandardCharsets.UTF_8);
+        script.toFile().setExecutable(true);
+        return script;
+    }
 }
@@ -0,0 +1,118 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import pique.model.Diagnostic;
+import pique.model.ModelNode;
+import utilities.PiquePropertiesTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FindingCollectorTest {
+
+    @Test
+    public void testIntern(){
+        FindingCollector collector = new FindingCollector(false);
+
+        String first = collector.intern(new String("src/module.c"));
+        String second = collector.intern(new String("src/module.c"));
+
+        assertTrue(first == second);
+    }
+
+    @Test
+    public void testDeduplicate(){
+        FindingCollector collector = new FindingCollector(true);
+
+        assertTrue(collector.isNew("uninitvar", "uninitvar", "src/module.c", 112, 9));
+        assertFalse(collector.isNew("uninitvar", "uninitvar", "src/module.c", 112, 9));
+        assertTrue(collector.isNew("uninitvar", "uninitvar", "src/module.c", 113, 9));
+        assertTrue(collector.isNew("unknown", "uninitvar", "src/module.c", 112, 9));
+    }
+
+    @Test
+    public void testKeepDuplicates(){
+        FindingCollector collector = new FindingCollector(false);
+
+        assertTrue(collector.isNew("uninitvar", "uninitvar", "src/module.c", 112, 9));
+        assertTrue(collector.isNew("uninitvar", "uninitvar", "src/module.c", 112, 9));
+    }
+
+    @Test
+    public void testMergeToolReports(){
+        Map<String, Diagnostic> cppcheck = parseCppcheck();
+        Map<String, Diagnostic> flawfinder = parseFlawfinder();
+        Set<String> names = new HashSet<>(cppcheck.keySet());
+        names.addAll(flawfinder.keySet());
+
+        Map<String, Diagnostic> merged = new HashMap<>();
+        FindingCollector.merge(merged, cppcheck);
+        FindingCollector.merge(merged, flawfinder);
+
+        assertEquals(names, merged.keySet());
+        // the tools report under different diagnostics, each is taken over as parsed
+        cppcheck.forEach((name, diagnostic) -> assertSame(diagnostic, merged.get(name)));
+        flawfinder.forEach((name, diagnostic) -> assertSame(diagnostic, merged.get(name)));
+    }
+
+    @Test
+    public void testMergeCombinesFindings(){
+        Map<String, Diagnostic> first = parseCppcheck();
+        Map<String, Diagnostic> second = parseCppcheck();
+
+        FindingCollector.merge(first, second);
+
+        assertEquals(second.keySet(), first.keySet());
+        second.forEach((name, diagnostic) -> {
+            for (ModelNode finding : diagnostic.getChildren().values()) {
+                assertTrue(name, first.get(name).getChildren().containsValue(finding));
+            }
+        });
+    }
+
+    private static Map<String, Diagnostic> parseCppcheck(){
+        Properties prop = PiquePropertiesTest.getProperties();
+        Path toolRoot = Paths.get(prop.getProperty("tool.cppcheck.filepath"));
+        return new CPPCheckToolWrapper(toolRoot).parseAnalysis(Paths.get("src/test/resources/cppcheck/console--cppcheckOutput.xml"));
+    }
+
+    private static Map<String, Diagnostic> parseFlawfinder(){
+        Properties prop = PiquePropertiesTest.getProperties();
+        Path toolRoot = Paths.get(prop.getProperty("tool.flawfinder.filepath"));
+        return new FlawfinderToolWrapper(toolRoot).parseAnalysis(Paths.get("src/test/resources/flawfinder/verifier--flawfinderOutput.csv"));
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import org.junit.Test;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+
+import pique.model.Diagnostic;
+import pique.model.Finding;
+import pique.model.ModelNode;
+import utilities.PiqueConfiguration;
+import utilities.PiquePropertiesTest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class FindingCounterTest {
+
+    private static final Path CPPCHECK_OUTPUT = Paths.get("src/test/resources/cppcheck/console--cppcheckOutput.xml");
+    private static final Path FLAWFINDER_OUTPUT = Paths.get("src/test/resources/flawfinder/verifier--flawfinderOutput.csv");
+
+    @Test
+    public void testCPPCheckCountingKeepsDiagnosticValues() {
+        Path toolRoot = Paths.get(PiquePropertiesTest.getProperties().getProperty("tool.cppcheck.filepath"));
+        Map<String, Diagnostic> findings = new CPPCheckToolWrapper(toolRoot, configuration(false)).parseAnalysis(CPPCHECK_OUTPUT);
+        Map<String, Diagnostic> counted = new CPPCheckToolWrapper(toolRoot, configuration(true)).parseAnalysis(CPPCHECK_OUTPUT);
+
+        assertSameValues(findings, counted);
+    }
+
+    @Test
+    public void testFlawfinderCountingKeepsDiagnosticValues() {
+        Path toolRoot = Paths.get(PiquePropertiesTest.getProperties().getProperty("tool.flawfinder.filepath"));
+        Map<String, Diagnostic> findings = new FlawfinderToolWrapper(toolRoot, configuration(false)).parseAnalysis(FLAWFINDER_OUTPUT);
+        Map<String, Diagnostic> counted = new FlawfinderToolWrapper(toolRoot, configuration(true)).parseAnalysis(FLAWFINDER_OUTPUT);
+
+        assertSameValues(findings, counted);
+    }
+
+    private static void assertSameValues(Map<String, Diagnostic> findings, Map<String, Diagnostic> counted) {
+        assertTrue(findings.size() > 0);
+        assertEquals(findings.keySet(), counted.keySet());
+        findings.forEach((name, diagnostic) -> {
+            assertEquals(name, 0, diagnostic.getValue().compareTo(counted.get(name).getValue()));
+            // one finding per rule, without a location
+            for (ModelNode child : counted.get(name).getChildren().values()) {
+                Finding finding = (Finding) child;
+                assertEquals("", finding.getFilePath());
+                assertEquals(0, finding.getLineNumber());
+            }
+        });
+    }
+
+    private static PiqueConfiguration configuration(boolean countFindings) {
+        Properties properties = PiquePropertiesTest.getProperties();
+        properties.setProperty("findings.counting", Boolean.toString(countFindings));
+        return PiqueConfiguration.of(properties);
+    }
+}
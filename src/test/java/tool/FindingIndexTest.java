@@ -0,0 +1,88 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package tool;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import pique.model.Finding;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FindingIndexTest {
+
+    private static final String FILE = "src/console.c";
+
+    @Test
+    public void testWideFindingDoesNotHideOthers() {
+        FindingIndex.Builder builder = FindingIndex.builder();
+        Finding wide = new Finding(FILE, 1, 1, 1);
+        builder.add(wide, 100000);
+        for (int line = 1; line <= 1000; line++) {
+            builder.add(new Finding(FILE, line * 10, 1, 1));
+        }
+        FindingIndex index = builder.build();
+
+        List<Finding> findings = index.findings(FILE, 5000, 5020);
+        assertEquals(4, findings.size());
+        assertSame(wide, findings.get(0));
+        assertEquals(5000, findings.get(1).getLineNumber());
+        assertEquals(5020, findings.get(3).getLineNumber());
+        assertEquals(1, index.findings(FILE, 10001, 20000).size());
+        assertEquals(1001, index.findings(FILE).size());
+    }
+
+    @Test
+    public void testMatchesScanOfAllFindings() {
+        Random random = new Random(16);
+        FindingIndex.Builder builder = FindingIndex.builder();
+        List<int[]> lines = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            int line = 1 + random.nextInt(2000);
+            int endLine = line + (random.nextInt(10) == 0 ? random.nextInt(1500) : random.nextInt(5));
+            builder.add(new Finding(FILE, line, 1, 1), endLine);
+            lines.add(new int[]{line, endLine});
+        }
+        FindingIndex index = builder.build();
+
+        for (int query = 0; query < 200; query++) {
+            int fromLine = 1 + random.nextInt(2500);
+            int toLine = fromLine + random.nextInt(50);
+            int expected = 0;
+            for (int[] finding : lines) {
+                if (finding[0] <= toLine && finding[1] >= fromLine) expected++;
+            }
+            List<Finding> findings = index.findings(FILE, fromLine, toLine);
+            assertEquals(fromLine + "-" + toLine, expected, findings.size());
+            for (int i = 1; i < findings.size(); i++) {
+                assertTrue(findings.get(i - 1).getLineNumber() <= findings.get(i).getLineNumber());
+            }
+        }
+    }
+}
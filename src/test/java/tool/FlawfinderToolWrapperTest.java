@@ -25,10 +25,18 @@ package tool;
 
 import org.junit.Test;
 
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Map;
 import java.util.Properties;
+
+import pique.model.Diagnostic;
 import utilities.PiquePropertiesTest;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 public class FlawfinderToolWrapperTest {
 
     private Properties prop;
@@ -44,4 +52,53 @@ public class FlawfinderToolWrapperTest {
         flawfinderToolWrapper.analyze(Paths.get("src/test/resources/benchmark/console.c"));
 
     }
+
+    @Test
+    public void testParseAnalysis(){
+        FlawfinderToolWrapper flawfinderToolWrapper = new FlawfinderToolWrapper(Paths.get(prop.getProperty("tool.flawfinder.filepath")));
+
+        // rows alternate FF1013, FF1004, ... with a blank line after each one
+        Map<String, Diagnostic> diagnostics = flawfinderToolWrapper.parseAnalysis(Paths.get("src/test/resources/flawfinder/verifier--flawfinderOutput.csv"));
+
+        assertEquals(1, diagnostics.size());
+        assertTrue(diagnostics.containsKey("FF1004"));
+    }
+
+    @Test
+    public void testIndexAnalysis(){
+        FlawfinderToolWrapper flawfinderToolWrapper = new FlawfinderToolWrapper(Paths.get(prop.getProperty("tool.flawfinder.filepath")));
+
+        // every row, the scored FF1004 ones at lines 751, 785 and 847 and the FF1013 ones at 411, 678 and 704
+        FindingIndex.Builder builder = FindingIndex.builder();
+        Map<String, Diagnostic> diagnostics = flawfinderToolWrapper.parseAnalysis(
+            Paths.get("src/test/resources/flawfinder/verifier--flawfinderOutput.csv"), builder);
+        FindingIndex index = builder.build();
+
+        assertEquals(6, index.size());
+        assertEquals(3, index.findings("src/main/resources/benchmark/verifier.c", 700, 800).size());
+        assertEquals(2, index.findings("src/main/resources/benchmark/verifier.c", 1, 700).size());
+        // scoring still skips every second row
+        assertEquals(1, diagnostics.size());
+        assertEquals(3, diagnostics.get("FF1004").getChildren().size());
+        assertEquals(6, flawfinderToolWrapper.indexAnalysis(Paths.get("src/test/resources/flawfinder/verifier--flawfinderOutput.csv")).size());
+    }
+
+    @Test
+    public void testParseBatchAnalysis(){
+        FlawfinderToolWrapper flawfinderToolWrapper = new FlawfinderToolWrapper(Paths.get(prop.getProperty("tool.flawfinder.filepath")));
+        Path console = Paths.get("src/test/resources/benchmark/console.c");
+        Path other = Paths.get("src/test/resources/benchmark/other.c");
+        Path clean = Paths.get("src/test/resources/benchmark/clean.c");
+
+        // rows of both files interleave, every second row of each file is scored: FF1004 at 20 and 40, FF1004 at 7
+        Map<Path, Map<String, Diagnostic>> diagnostics = flawfinderToolWrapper.parseBatchAnalysis(
+            Paths.get("src/test/resources/flawfinder/batch--flawfinderOutput.csv"), Arrays.asList(console, other, clean));
+
+        assertEquals(3, diagnostics.size());
+        assertEquals(1, diagnostics.get(console).size());
+        assertTrue(diagnostics.get(console).containsKey("FF1004"));
+        assertEquals(1, diagnostics.get(other).size());
+        assertTrue(diagnostics.get(other).containsKey("FF1004"));
+        assertTrue(diagnostics.get(clean).isEmpty());
+    }
 }
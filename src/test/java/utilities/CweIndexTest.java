@@ -0,0 +1,100 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CweIndexTest {
+
+    private static CweIndex testIndex() throws IOException {
+        return CweIndex.fromFeeds(Arrays.asList(
+            Paths.get("src/test/resources/nvd/nvdcve-1.1-test.json"),
+            Paths.get("src/test/resources/nvd/nvdcve-2.0-test.json")));
+    }
+
+    @Test
+    public void testLookup() throws IOException {
+        CweIndex index = testIndex();
+
+        assertEquals(4, index.size());
+        assertArrayEquals(new String[]{"CWE-502", "CWE-400", "CWE-20"}, index.lookup("CVE-2021-44228"));
+        assertArrayEquals(new String[]{"CWE-193"}, index.lookup("cve-2021-3156"));
+        assertArrayEquals(new String[]{"NVD-CWE-noinfo"}, index.lookup("CVE-2021-1000001"));
+        assertArrayEquals(new String[]{"CWE-125"}, index.lookup("CVE-2014-0160"));
+        // cached lookups hand out their own copy
+        index.lookup("CVE-2014-0160")[0] = "changed";
+        assertArrayEquals(new String[]{"CWE-125"}, index.lookup("CVE-2014-0160"));
+
+        assertEquals(0, index.lookup("CVE-2021-0001").length);
+        assertEquals(0, index.lookup("GHSA-jfh8-c2jp-5v3q").length);
+    }
+
+    @Test
+    public void testSnapshot() throws IOException {
+        Path snapshot = Files.createTempFile("cweIndex", ".bin");
+        try {
+            testIndex().writeTo(snapshot);
+            CweIndex index = CweIndex.readFrom(snapshot);
+
+            assertEquals(4, index.size());
+            assertArrayEquals(new String[]{"CWE-502", "CWE-400", "CWE-20"}, index.lookup("CVE-2021-44228"));
+            assertArrayEquals(new String[]{"CWE-125"}, index.lookup("CVE-2014-0160"));
+        } finally {
+            Files.deleteIfExists(snapshot);
+        }
+    }
+
+    @Test
+    public void testSnapshotFollowsFeeds() throws IOException {
+        Path feeds = Files.createTempDirectory("nvd");
+        Path feed11 = Files.copy(Paths.get("src/test/resources/nvd/nvdcve-1.1-test.json"), feeds.resolve("nvdcve-1.1-test.json"));
+        assertEquals(3, CweIndex.load(feeds).size());
+        assertTrue(Files.isRegularFile(feeds.resolve("cweIndex.bin")));
+        assertEquals(3, CweIndex.load(feeds).size());
+
+        // added with a modification time older than the snapshot, e.g. by cp -p
+        Path feed20 = Files.copy(Paths.get("src/test/resources/nvd/nvdcve-2.0-test.json"), feeds.resolve("nvdcve-2.0-test.json"));
+        Files.setLastModifiedTime(feed20, FileTime.fromMillis(0));
+        assertEquals(4, CweIndex.load(feeds).size());
+
+        Files.delete(feed11);
+        assertEquals(1, CweIndex.load(feeds).size());
+
+        // single feeds of the same directory share the snapshot
+        Path other = Files.copy(Paths.get("src/test/resources/nvd/nvdcve-1.1-test.json"), feeds.resolve("other.json"));
+        assertEquals(3, CweIndex.load(other).size());
+        assertEquals(1, CweIndex.load(feed20).size());
+    }
+}
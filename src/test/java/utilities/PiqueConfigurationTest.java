@@ -0,0 +1,152 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import java.nio.file.Paths;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PiqueConfigurationTest {
+
+    private static final String TEST_PROPERTIES = "src/test/resources/piqueVendorTest.properties";
+
+    @Test
+    public void testLoad() {
+        PiqueConfiguration configuration = PiqueConfiguration.load(TEST_PROPERTIES);
+
+        assertEquals(Paths.get("src/main/resources/projectToAssess/"), configuration.getProjectRoot());
+        assertEquals(Paths.get("out/"), configuration.getResultsDirectory());
+        assertEquals(Paths.get("out/benchmark"), configuration.getToolResultsDirectory());
+        assertEquals(Paths.get("src/main/resources/tools/flawfinder-2.0.19/flawfinder.py"), configuration.getFlawfinderPath());
+        assertEquals(Runtime.getRuntime().availableProcessors(), configuration.getEvaluationThreads());
+        assertEquals(7421, configuration.getServerPort());
+        assertEquals(16, configuration.getServerQueueCapacity());
+        assertEquals(Paths.get("out/toolCache/"), configuration.getToolCacheDirectory());
+        assertTrue(configuration.saveBenchmarkResults());
+        assertFalse(configuration.useBatchTools());
+        assertNull(configuration.getCweFeeds());
+        assertNull(configuration.getPreviousResultsDirectory());
+        assertEquals(Paths.get("out/CVendorQualityModel.json"), configuration.getDerivedModel());
+
+        configuration.validateForEvaluation();
+        configuration.validateForDerivation();
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedByLaterChanges() {
+        Properties properties = PiquePropertiesTest.getProperties();
+        PiqueConfiguration configuration = PiqueConfiguration.of(properties);
+
+        properties.setProperty("evaluation.threads", "3");
+        properties.setProperty("tool.batch", "true");
+        configuration.toProperties().setProperty("tool.batch", "true");
+
+        assertEquals(Runtime.getRuntime().availableProcessors(), configuration.getEvaluationThreads());
+        assertFalse(configuration.useBatchTools());
+        assertEquals("", configuration.getProperty("evaluation.threads", null));
+    }
+
+    @Test
+    public void testConfigurationsCoexist() {
+        Properties properties = PiquePropertiesTest.getProperties();
+        PiqueConfiguration first = PiqueConfiguration.of(properties);
+        properties.setProperty("results.directory", "out/second/");
+        properties.setProperty("derivation.threads", "2");
+        PiqueConfiguration second = PiqueConfiguration.of(properties);
+
+        assertEquals(Paths.get("out/"), first.getResultsDirectory());
+        assertEquals(Paths.get("out/second/"), second.getResultsDirectory());
+        assertEquals(2, second.getDerivationThreads());
+    }
+
+    @Test
+    public void testInvalidValueIsRejected() {
+        Properties properties = PiquePropertiesTest.getProperties();
+        properties.setProperty("tool.timeout.seconds", "ten");
+        try {
+            PiqueConfiguration.of(properties);
+            fail("expected the malformed timeout to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("tool.timeout.seconds"));
+        }
+    }
+
+    @Test
+    public void testMissingSettingIsRejected() {
+        Properties properties = PiquePropertiesTest.getProperties();
+        properties.remove("project.root");
+        PiqueConfiguration configuration = PiqueConfiguration.of(properties);
+
+        configuration.validateForDerivation();
+        try {
+            configuration.validateForEvaluation();
+            fail("expected the missing project.root to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("project.root"));
+        }
+    }
+
+    @Test
+    public void testDerivedModelLocation() {
+        Properties properties = PiquePropertiesTest.getProperties();
+        properties.setProperty("results.directory", "out/second/");
+        assertEquals(Paths.get("out/second/CVendorQualityModel.json"), PiqueConfiguration.of(properties).getDerivedModel());
+
+        properties.setProperty("derived.model.filepath", "models/derived.json");
+        assertEquals(Paths.get("models/derived.json"), PiqueConfiguration.of(properties).getDerivedModel());
+
+        PiqueConfiguration job = PiqueConfiguration.of(PiquePropertiesTest.getProperties()).withResultsDirectory(Paths.get("out/job"));
+        assertEquals(Paths.get("out/job"), job.getResultsDirectory());
+        assertEquals(Paths.get("out/CVendorQualityModel.json"), job.getDerivedModel());
+    }
+
+    @Test
+    public void testDifferingProcessSettingsAreRejected() {
+        Properties properties = PiquePropertiesTest.getProperties();
+        PiqueConfiguration installed = PiqueConfiguration.of(properties);
+        properties.setProperty("results.directory", "out/second/");
+        PiqueConfiguration sameProcessSettings = PiqueConfiguration.of(properties);
+        assertSame(sameProcessSettings, sameProcessSettings.requireProcessSettingsOf(installed));
+
+        properties.setProperty("evaluation.primitive", "true");
+        properties.setProperty("tool.cache.directory", "");
+        PiqueConfiguration configuration = PiqueConfiguration.of(properties);
+        try {
+            configuration.requireProcessSettingsOf(installed);
+            fail("expected the differing process-wide settings to be rejected");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("evaluation.primitive"));
+            assertTrue(e.getMessage().contains("tool.cache.directory"));
+            assertFalse(e.getMessage().contains("tool.max.processes"));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/**
+ * MIT License
+ *
+ * Copyright (c) 2021 Montana State University Software Engineering Labs
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package utilities;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RunMetricsTest {
+
+    @Test
+    public void testRecordAndExport() throws IOException {
+        RunMetrics.reset();
+        for (int i = 0; i < 3; i++) {
+            RunMetrics.time("parse.test", () -> {
+                RunMetrics.add("findings.parsed.test", 10);
+                return null;
+            });
+        }
+        RunMetrics.exitCode(0);
+
+        ObjectNode json = RunMetrics.toJson();
+        assertEquals(3, json.path("stages").path("parse.test").path("count").asLong());
+        assertEquals(30, json.path("counters").path("findings.parsed.test").asLong());
+        assertEquals(1, json.path("counters").path("subprocess.exit.0").asLong());
+
+        StringWriter prometheus = new StringWriter();
+        RunMetrics.writePrometheus(prometheus);
+        assertTrue(prometheus.toString().contains("pique_stage_count_total{stage=\"parse.test\"} 3\n"));
+        assertTrue(prometheus.toString().contains("pique_events_total{event=\"findings.parsed.test\"} 30\n"));
+        RunMetrics.reset();
+    }
+
+    @Test
+    public void testTimeRecordsFailedStage() {
+        RunMetrics.reset();
+        try {
+            RunMetrics.time("parse.test", () -> {
+                throw new IOException("unreadable");
+            });
+            fail("the body's exception is rethrown");
+        } catch (IOException e) {
+            assertEquals("unreadable", e.getMessage());
+        }
+        assertEquals("value", RunMetrics.time("parse.test", () -> "value"));
+
+        assertEquals(2, RunMetrics.toJson().path("stages").path("parse.test").path("count").asLong());
+        RunMetrics.reset();
+    }
+}